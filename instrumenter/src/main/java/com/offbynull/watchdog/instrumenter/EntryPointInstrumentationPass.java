@@ -16,6 +16,7 @@
  */
 package com.offbynull.watchdog.instrumenter;
 
+import static com.offbynull.watchdog.instrumenter.FramePatcher.entryFrame;
 import com.offbynull.watchdog.instrumenter.asm.VariableTable.Variable;
 import com.offbynull.watchdog.instrumenter.generators.DebugGenerators.MarkerType;
 import static com.offbynull.watchdog.instrumenter.generators.DebugGenerators.debugMarker;
@@ -63,6 +64,7 @@ final class EntryPointInstrumentationPass implements InstrumentationPass {
                                                 saveVar(watchdogVar)
                                         )
                                 ),
+                                entryFrame(classNode, methodNode), // frame for the branch target that ifObjectsEqual ends on
                                 debugMarker(markerType, "Invoking watchdog method entry tracker"),
                                 call(ON_METHOD_ENTRY_METHOD, loadVar(watchdogVar))
                         );                
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.instrumenter;
+
+import com.offbynull.watchdog.instrumenter.asm.VariableTable.Variable;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+
+final class FramePatcher {
+
+    private FramePatcher() {
+        // do nothing
+    }
+    
+    // How does this work?
+    //
+    // Classes are read with EXPAND_FRAMES, so every FrameNode in a method is an F_NEW frame listing out the full types of the locals and
+    // the stack. The passes only ever add code that's stack-neutral (placeholder loads get replaced with a load of the same type, calls to
+    // the watchdog pop everything they push), so the only things that need patching are...
+    //
+    // 1. The watchdog variable. In annotation mode it sits in a new slot past the end of the original locals, meaning none of the original
+    //    frames know about it. In argument mode it's an argument, but the compiler is free to have dropped it from frames where it's no
+    //    longer used. Either way, it's assigned once at method entry and never changed after that, so it gets set to Watchdog in every
+    //    frame.
+    // 2. The branch in the entry point preamble (argument mode only). Its target needs a frame, which is the method's initial frame
+    //    (derived from the method descriptor) since nothing but the watchdog variable has been touched by that point.
+    //
+    // Classes older than Java 6 don't have frames (and they're optional for Java 6 classes), so nothing gets added for them.
+    static boolean usesFrames(ClassNode classNode) {
+        Validate.notNull(classNode);
+        return (classNode.version & 0xFFFF) >= Opcodes.V1_6;
+    }
+
+    static InsnList entryFrame(ClassNode classNode, MethodNode methodNode) {
+        Validate.notNull(classNode);
+        Validate.notNull(methodNode);
+
+        InsnList ret = new InsnList();
+        if (!usesFrames(classNode)) {
+            return ret;
+        }
+        
+        List<Object> locals = new ArrayList<>();
+        if ((methodNode.access & Opcodes.ACC_STATIC) == 0) {
+            locals.add("<init>".equals(methodNode.name) ? Opcodes.UNINITIALIZED_THIS : classNode.name);
+        }
+        for (Type argType : Type.getArgumentTypes(methodNode.desc)) {
+            locals.add(toFrameType(argType));
+        }
+        
+        ret.add(new FrameNode(Opcodes.F_NEW, locals.size(), locals.toArray(), 0, new Object[0]));
+        return ret;
+    }
+
+    static void patchVariable(MethodNode methodNode, Variable variable) {
+        Validate.notNull(methodNode);
+        Validate.notNull(variable);
+
+        Object frameType = toFrameType(variable.getType());
+        int index = variable.getIndex();
+        
+        AbstractInsnNode insnNode = methodNode.instructions.getFirst();
+        while (insnNode != null) {
+            if (insnNode instanceof FrameNode) {
+                FrameNode frameNode = (FrameNode) insnNode;
+                Validate.isTrue(frameNode.type == Opcodes.F_NEW, "Frames must be expanded");
+                frameNode.local = setLocal(frameNode.local, index, frameType);
+            }
+            insnNode = insnNode.getNext();
+        }
+    }
+
+    private static List<Object> setLocal(List<Object> locals, int index, Object frameType) {
+        List<Object> ret = new ArrayList<>(locals == null ? 0 : locals.size() + 1);
+
+        // Frame locals are listed by entry, not by slot -- long/double are a single entry that takes up 2 slots
+        int slot = 0;
+        boolean set = false;
+        if (locals != null) {
+            for (Object local : locals) {
+                int size = isWide(local) ? 2 : 1;
+                if (slot <= index && index < slot + size) {
+                    // Overwriting a slot that's part of a long/double kills the whole long/double
+                    if (slot < index) {
+                        ret.add(Opcodes.TOP);
+                    }
+                    ret.add(frameType);
+                    if (index + 1 < slot + size) {
+                        ret.add(Opcodes.TOP);
+                    }
+                    set = true;
+                } else {
+                    ret.add(local);
+                }
+                slot += size;
+            }
+        }
+
+        if (!set) {
+            for (; slot < index; slot++) {
+                ret.add(Opcodes.TOP);
+            }
+            ret.add(frameType);
+        }
+
+        return ret;
+    }
+
+    private static boolean isWide(Object frameType) {
+        return frameType == Opcodes.LONG || frameType == Opcodes.DOUBLE;
+    }
+
+    private static Object toFrameType(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                return Opcodes.INTEGER;
+            case Type.FLOAT:
+                return Opcodes.FLOAT;
+            case Type.LONG:
+                return Opcodes.LONG;
+            case Type.DOUBLE:
+                return Opcodes.DOUBLE;
+            case Type.ARRAY:
+            case Type.OBJECT:
+                return type.getInternalName();
+            default:
+                throw new IllegalArgumentException(); // should never happen
+        }
+    }
+}
@@ -93,10 +93,19 @@ public final class Instrumenter {
 
 
 
-        // Read class as tree model -- because we're using SimpleClassNode, JSR blocks get inlined
+        // Quickly check if the class needs to be instrumented -- most classes don't, and for those there's no point in building up a tree
+        // model, running passes, and writing it back out
         ClassReader cr = new ClassReader(input);
+        if (!PreScanAnalyzer.requiresInstrumentation(cr)) {
+            return new InstrumentationResult(input); // class should not be instrumented -- return original data.
+        }
+
+
+
+        // Read class as tree model -- because we're using SimpleClassNode, JSR blocks get inlined. Frames are expanded so that they can be
+        // patched rather than recomputed from scratch (see FramePatcher).
         ClassNode classNode = new SimpleClassNode();
-        cr.accept(classNode, 0);
+        cr.accept(classNode, ClassReader.EXPAND_FRAMES);
 
 
 
@@ -119,7 +128,8 @@ public final class Instrumenter {
             new LoopPointInstrumentationPass(),           // instrument method loop points
             //new ArrayInstantiationInstrumentationPass(),  // instrument method array instantiation points (DISABLED)
             //new ObjectInstantiationInstrumentationPass(), // instrument method object instantiation points (DISABLED)
-            new EntryPointInstrumentationPass(),          // instrument method entry point (must be last)
+            new EntryPointInstrumentationPass(),          // instrument method entry point (must be last to add code)
+            new PatchFramesInstrumentationPass(),         // patch stack map frames to account for added code
             new SetMarkerInstrumentationPass(),           // set already instrumented marker
         };
         InstrumentationState passState = new InstrumentationState(settings, classRepo);
@@ -146,7 +156,9 @@ public final class Instrumenter {
         // RE-ENABLE ONLY IF JVM COMPLAINS ABOUT INSTRUMENTED CLASSES AND YOU NEED TO DEBUG, KEEP COMMENTED OUT FOR PRODUCTION
         //verifyClassIntegrity(classNode); // This doesn't really work anymore? It seems to error out when it shouldn't.
 
-        ClassWriter cw = new SimpleClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES, classRepo);
+        // Frames have already been patched by PatchFramesInstrumentationPass, so there's no need to COMPUTE_FRAMES (which would walk class
+        // hierarchies through classRepo at every merge point).
+        ClassWriter cw = new SimpleClassWriter(ClassWriter.COMPUTE_MAXS, classRepo);
         classNode.accept(cw);
         
         byte[] classData = cw.toByteArray();
@@ -16,159 +16,424 @@
  */
 package com.offbynull.watchdog.instrumenter;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.apache.commons.lang3.Validate;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.FrameNode;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
-import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.objectweb.asm.tree.TryCatchBlockNode;
 
 final class LoopAnalyzer {
+    private static final byte UNVISITED = 0;
+    private static final byte ON_STACK = 1;
+    private static final byte FINISHED = 2;
+
     private LoopAnalyzer() {
         // do nothing
     }
     
-    static Set<Loop> findLoops(
-            InsnList insnList,
-            List<TryCatchBlockNode> tryCatchBlockNodes) {
-        return walk(insnList.getFirst(), insnList, tryCatchBlockNodes, new HashSet<>());
-    }
-    
-    
     // How does this work?
     //
-    // It detects loops by walking all possible execution paths. The code walks down the instruction list until theres an instruction with
-    // one or more possible branches. It'll then fork the walk into those branches, and once they complete it'll continue the walk. The
-    // process is recrusive.
-    private static Set<Loop> walk(
-            AbstractInsnNode startInsnNode,
+    // It builds the control flow graph of the method (one node per entry in the instruction list) and does a depth-first search over it
+    // from the first instruction. Any edge that leads back to a node still on the search stack is a back edge -- every cycle in the graph
+    // contains at least one. The target of a back edge is a loop header (always a label, because nothing but fall-through can get to a
+    // non-label, and fall-through can only get to a node that's on the stack if that node is a label that was jumped to earlier).
+    //
+    // The search is iterative (an explicit stack instead of recursion) so that large methods don't blow the stack, and every node and edge
+    // is visited once, so it runs in time linear to the size of the graph. Nodes that can't be reached from the first instruction (dead
+    // code) are never visited.
+    static Set<Loop> findLoops(
             InsnList insnList,
-            List<TryCatchBlockNode> tryCatchBlockNodes,
-            Set<LabelNode> walkedLabels) {
+            List<TryCatchBlockNode> tryCatchBlockNodes) {
+        AbstractInsnNode[] insnNodes = insnList.toArray();
+        int[][] handlers = findHandlers(insnNodes, insnList, tryCatchBlockNodes);
+        
         Set<Loop> loops = new LinkedHashSet<>();
+        if (insnNodes.length == 0) {
+            return loops;
+        }
         
-        AbstractInsnNode insnNode = startInsnNode;
-        while (insnNode != null) {
-            Validate.isTrue(insnNode.getOpcode() != Opcodes.JSR); // sanity check -- JSRs should be filtered out
+        byte[] states = new byte[insnNodes.length];
+        int[] stackNodes = new int[insnNodes.length];
+        int[] stackEdges = new int[insnNodes.length]; // index of the next outgoing edge to walk for the node at the same stack position
+        int stackSize = 0;
+
+        stackNodes[0] = 0;
+        stackEdges[0] = 0;
+        stackSize++;
+        states[0] = ON_STACK;
+        while (stackSize > 0) {
+            int node = stackNodes[stackSize - 1];
+            int edge = stackEdges[stackSize - 1]++;
+            int successor = successor(insnNodes, insnList, handlers, node, edge);
             
+            if (successor == -1) {
+                // No more edges -- done with this node
+                states[node] = FINISHED;
+                stackSize--;
+                continue;
+            }
             
-            // If the instruction is in a try-catch block, there's a possibility it can branch out to the catch handler
-            for (TryCatchBlockNode tryCatchBlockNode : tryCatchBlockNodes) {
-                if (insnNode instanceof LabelNode
-                        || insnNode instanceof FrameNode
-                        || insnNode instanceof LineNumberNode) {
-                    // skip non-instructions
-                    continue;
+            switch (states[successor]) {
+                case UNVISITED:
+                    stackNodes[stackSize] = successor;
+                    stackEdges[stackSize] = 0;
+                    stackSize++;
+                    states[successor] = ON_STACK;
+                    break;
+                case ON_STACK:
+                    loops.add(new Loop(insnNodes[node], (LabelNode) insnNodes[successor]));
+                    break;
+                case FINISHED:
+                    break;
+                default:
+                    throw new IllegalStateException(); // should never happen
+            }
+        }
+        
+        return loops;
+    }
+    
+    // Returns the indices of the handlers each instruction may branch out to, in exception table order.
+    //
+    // An instruction in a try-catch block only branches out to the handler if it can actually throw something the handler catches. The
+    // model used here...
+    //   1. Every instruction can throw a VirtualMachineError (e.g. OutOfMemoryError, StackOverflowError) -- the JVM may throw those at
+    //      any point. Other asynchronous exceptions (e.g. Thread.stop()) are ignored.
+    //   2. Instructions the JVM throws exceptions out of on its own (e.g. array accesses, field accesses, integer division) can also throw
+    //      the exact exception types listed in the JVM spec, plus any type of Error if they can trigger class loading/initialization.
+    //   3. Invocations, ATHROW, and LDCs of dynamically-computed constants can throw anything.
+    // Handlers are matched the same way the JVM matches them -- in order, with the first handler that catches a type taking it. Once
+    // everything an instruction can throw is caught, later handlers can't be reached from it. That means a handler for Error,
+    // VirtualMachineError, or any of its subclasses (as well as a handler with no catch type) is reachable from every instruction in its
+    // range, unless an earlier handler already catches every VirtualMachineError.
+    private static int[][] findHandlers(AbstractInsnNode[] insnNodes, InsnList insnList, List<TryCatchBlockNode> tryCatchBlockNodes) {
+        ThrowModel[] throwModels = new ThrowModel[insnNodes.length];
+        for (int i = 0; i < insnNodes.length; i++) {
+            throwModels[i] = ThrowModel.of(insnNodes[i]);
+        }
+        
+        // Find which try-catch blocks each instruction that can throw is in
+        int[] counts = new int[insnNodes.length];
+        for (TryCatchBlockNode tryCatchBlockNode : tryCatchBlockNodes) {
+            int startLabelIdx = insnList.indexOf(tryCatchBlockNode.start);
+            int endLabelIdx = insnList.indexOf(tryCatchBlockNode.end);
+            for (int i = startLabelIdx + 1; i < endLabelIdx; i++) {
+                if (throwModels[i] != null) {
+                    counts[i]++;
                 }
-
-                int idx = insnList.indexOf(insnNode);
-                int startLabelIdx = insnList.indexOf(tryCatchBlockNode.start);
-                int endLabelIdx = insnList.indexOf(tryCatchBlockNode.end);
-                if (idx > startLabelIdx && idx < endLabelIdx) {
-                    forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, tryCatchBlockNode.handler, loops);
+            }
+        }
+        
+        int[][] blocks = new int[insnNodes.length][];
+        for (int i = 0; i < insnNodes.length; i++) {
+            blocks[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        
+        for (int j = 0; j < tryCatchBlockNodes.size(); j++) {
+            TryCatchBlockNode tryCatchBlockNode = tryCatchBlockNodes.get(j);
+            int startLabelIdx = insnList.indexOf(tryCatchBlockNode.start);
+            int endLabelIdx = insnList.indexOf(tryCatchBlockNode.end);
+            for (int i = startLabelIdx + 1; i < endLabelIdx; i++) {
+                if (throwModels[i] != null) {
+                    blocks[i][counts[i]++] = j;
                 }
             }
+        }
+        
+        // Of those try-catch blocks, find the ones whose handlers can actually be reached
+        int[][] handlers = new int[insnNodes.length][];
+        for (int i = 0; i < insnNodes.length; i++) {
+            handlers[i] = throwModels[i] == null
+                    ? blocks[i]
+                    : throwModels[i].reachableHandlers(blocks[i], insnList, tryCatchBlockNodes);
+        }
+        
+        return handlers;
+    }
+    
+    // Returns the index of the node that the edge-th outgoing edge of the node at idx leads to, or -1 if there is no such edge. Edges are
+    // ordered as catch handlers, then branch targets, then fall-through.
+    private static int successor(AbstractInsnNode[] insnNodes, InsnList insnList, int[][] handlers, int idx, int edge) {
+        AbstractInsnNode insnNode = insnNodes[idx];
+        Validate.isTrue(insnNode.getOpcode() != Opcodes.JSR); // sanity check -- JSRs should be filtered out
+        
+        if (edge < handlers[idx].length) {
+            return handlers[idx][edge];
+        }
+        edge -= handlers[idx].length;
+        
+        int nextIdx = idx + 1 < insnNodes.length ? idx + 1 : -1;
+        if (insnNode instanceof JumpInsnNode) {
+            // If jump, branch to the label -- if conditional, fall through as well
+            JumpInsnNode jumpInsnNode = (JumpInsnNode) insnNode;
+            if (edge == 0) {
+                return insnList.indexOf(jumpInsnNode.label);
+            } else if (edge == 1 && jumpInsnNode.getOpcode() != Opcodes.GOTO) {
+                return nextIdx;
+            }
+            return -1;
+        } else if (insnNode instanceof LookupSwitchInsnNode) {
+            // If switch, branch to cases and default
+            LookupSwitchInsnNode lookupSwitchInsnNode = (LookupSwitchInsnNode) insnNode;
+            return switchSuccessor(insnList, lookupSwitchInsnNode.labels, lookupSwitchInsnNode.dflt, edge);
+        } else if (insnNode instanceof TableSwitchInsnNode) {
+            // If switch, branch to cases and default
+            TableSwitchInsnNode tableSwitchInsnNode = (TableSwitchInsnNode) insnNode;
+            return switchSuccessor(insnList, tableSwitchInsnNode.labels, tableSwitchInsnNode.dflt, edge);
+        }
+        
+        // If not a return/throw, this instruction will move to the next instruction in the list
+        switch (insnNode.getOpcode()) {
+            case Opcodes.RETURN:
+            case Opcodes.IRETURN:
+            case Opcodes.FRETURN:
+            case Opcodes.LRETURN:
+            case Opcodes.DRETURN:
+            case Opcodes.ARETURN:
+            case Opcodes.ATHROW:
+                return -1;
+            default:
+                return edge == 0 ? nextIdx : -1;
+        }
+    }
+    
+    private static int switchSuccessor(InsnList insnList, List<LabelNode> labelNodes, LabelNode dfltLabelNode, int edge) {
+        if (edge < labelNodes.size()) {
+            return insnList.indexOf(labelNodes.get(edge));
+        } else if (edge == labelNodes.size()) {
+            return insnList.indexOf(dfltLabelNode);
+        }
+        return -1;
+    }
+    
+    
+    // What an instruction can throw. Exception types are internal names.
+    private static final class ThrowModel {
+        private static final String THROWABLE = "java/lang/Throwable";
+        private static final String ERROR = "java/lang/Error";
+        private static final String NPE = "java/lang/NullPointerException";
+        private static final String AIOOBE = "java/lang/ArrayIndexOutOfBoundsException";
+        private static final String VME = "java/lang/VirtualMachineError";
+        
+        // Superclasses of exception types that the JVM throws on its own, as well as some common exception types that handlers catch. Used
+        // to check if a handler catches a type without having to load any classes. Types not in here are treated as unknown.
+        private static final Map<String, String> SUPERCLASSES = new HashMap<>();
+        static {
+            SUPERCLASSES.put(THROWABLE, null);
+            SUPERCLASSES.put("java/lang/Exception", THROWABLE);
+            SUPERCLASSES.put(ERROR, THROWABLE);
+            SUPERCLASSES.put("java/lang/RuntimeException", "java/lang/Exception");
+            SUPERCLASSES.put("java/lang/ArithmeticException", "java/lang/RuntimeException");
+            SUPERCLASSES.put(NPE, "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/IndexOutOfBoundsException", "java/lang/RuntimeException");
+            SUPERCLASSES.put(AIOOBE, "java/lang/IndexOutOfBoundsException");
+            SUPERCLASSES.put("java/lang/ArrayStoreException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/NegativeArraySizeException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/ClassCastException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/IllegalMonitorStateException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/IllegalArgumentException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/NumberFormatException", "java/lang/IllegalArgumentException");
+            SUPERCLASSES.put("java/lang/IllegalStateException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/UnsupportedOperationException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/io/UncheckedIOException", "java/lang/RuntimeException");
+            SUPERCLASSES.put("java/lang/InterruptedException", "java/lang/Exception");
+            SUPERCLASSES.put("java/lang/CloneNotSupportedException", "java/lang/Exception");
+            SUPERCLASSES.put("java/lang/ReflectiveOperationException", "java/lang/Exception");
+            SUPERCLASSES.put("java/lang/ClassNotFoundException", "java/lang/ReflectiveOperationException");
+            SUPERCLASSES.put("java/io/IOException", "java/lang/Exception");
+            SUPERCLASSES.put("java/lang/LinkageError", ERROR);
+            SUPERCLASSES.put(VME, ERROR);
+            SUPERCLASSES.put("java/lang/OutOfMemoryError", VME);
+            SUPERCLASSES.put("java/lang/StackOverflowError", VME);
+            SUPERCLASSES.put("java/lang/InternalError", VME);
+            SUPERCLASSES.put("java/lang/UnknownError", VME);
+        }
+        
+        // Every model can throw VirtualMachineErrors on top of what it lists
+        private static final ThrowModel VIRTUAL_MACHINE_ERRORS = new ThrowModel(false, false);
+        private static final ThrowModel ANYTHING = new ThrowModel(true, false);
+        private static final ThrowModel ERRORS = new ThrowModel(false, true);
+        private static final ThrowModel ARITHMETIC = new ThrowModel(false, false, "java/lang/ArithmeticException");
+        private static final ThrowModel NULL_POINTER = new ThrowModel(false, false, NPE);
+        private static final ThrowModel NULL_POINTER_OR_ERRORS = new ThrowModel(false, true, NPE);
+        private static final ThrowModel ARRAY_ACCESS = new ThrowModel(false, false, NPE, AIOOBE);
+        private static final ThrowModel ARRAY_STORE = new ThrowModel(false, false, NPE, AIOOBE, "java/lang/ArrayStoreException");
+        private static final ThrowModel ARRAY_CREATE = new ThrowModel(false, false, "java/lang/NegativeArraySizeException");
+        private static final ThrowModel ARRAY_CREATE_OR_ERRORS = new ThrowModel(false, true, "java/lang/NegativeArraySizeException");
+        private static final ThrowModel CLASS_CAST_OR_ERRORS = new ThrowModel(false, true, "java/lang/ClassCastException");
+        private static final ThrowModel MONITOR = new ThrowModel(false, false, NPE, "java/lang/IllegalMonitorStateException");
+        private static final ThrowModel ILLEGAL_MONITOR = new ThrowModel(false, false, "java/lang/IllegalMonitorStateException");
 
-
-            if (insnNode instanceof FrameNode || insnNode instanceof LineNumberNode) {
-                // Skip non-instructions (labels aren't instructions but they need special handling -- handled in another branch)
-                insnNode = insnNode.getNext();
-            } else if (insnNode instanceof LabelNode) {
-                // If label, add it to the walked labels
-                LabelNode labelNode = (LabelNode) insnNode;
-                walkedLabels.add(labelNode);
-                
-                insnNode = insnNode.getNext();
-            } else if (insnNode instanceof JumpInsnNode) {
-                // If jump, fork walk the label
-                JumpInsnNode jumpInsnNode = (JumpInsnNode) insnNode;
-                LabelNode labelNode = jumpInsnNode.label;
-                
-                if (jumpInsnNode.getOpcode() == Opcodes.GOTO) {
-                    forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, labelNode, loops);
-                    insnNode = null;
-                } else {
-                    forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, labelNode, loops);
-                    insnNode = insnNode.getNext();
+        private final boolean anything;      // if true, can throw any type
+        private final boolean errors;        // if true, can throw any type of Error (class loading/initialization can fail)
+        private final String[] types;        // exact types that can be thrown
+        
+        private ThrowModel(boolean anything, boolean errors, String... types) {
+            this.anything = anything;
+            this.errors = errors;
+            this.types = types;
+        }
+        
+        // Returns null if not an actual instruction (label, line number, frame)
+        static ThrowModel of(AbstractInsnNode insnNode) {
+            switch (insnNode.getOpcode()) {
+                case -1:
+                    return null;
+                case Opcodes.INVOKEVIRTUAL:
+                case Opcodes.INVOKESPECIAL:
+                case Opcodes.INVOKESTATIC:
+                case Opcodes.INVOKEINTERFACE:
+                case Opcodes.INVOKEDYNAMIC:
+                case Opcodes.ATHROW:
+                    return ANYTHING;
+                case Opcodes.IDIV:
+                case Opcodes.LDIV:
+                case Opcodes.IREM:
+                case Opcodes.LREM:
+                    return ARITHMETIC;
+                case Opcodes.IALOAD:
+                case Opcodes.LALOAD:
+                case Opcodes.FALOAD:
+                case Opcodes.DALOAD:
+                case Opcodes.AALOAD:
+                case Opcodes.BALOAD:
+                case Opcodes.CALOAD:
+                case Opcodes.SALOAD:
+                case Opcodes.IASTORE:
+                case Opcodes.LASTORE:
+                case Opcodes.FASTORE:
+                case Opcodes.DASTORE:
+                case Opcodes.BASTORE:
+                case Opcodes.CASTORE:
+                case Opcodes.SASTORE:
+                    return ARRAY_ACCESS;
+                case Opcodes.AASTORE:
+                    return ARRAY_STORE;
+                case Opcodes.ARRAYLENGTH:
+                    return NULL_POINTER;
+                case Opcodes.GETFIELD:
+                case Opcodes.PUTFIELD:
+                    return NULL_POINTER_OR_ERRORS;
+                case Opcodes.GETSTATIC:
+                case Opcodes.PUTSTATIC:
+                case Opcodes.NEW:
+                case Opcodes.INSTANCEOF:
+                    return ERRORS;
+                case Opcodes.NEWARRAY:
+                    return ARRAY_CREATE;
+                case Opcodes.ANEWARRAY:
+                case Opcodes.MULTIANEWARRAY:
+                    return ARRAY_CREATE_OR_ERRORS;
+                case Opcodes.CHECKCAST:
+                    return CLASS_CAST_OR_ERRORS;
+                case Opcodes.MONITORENTER:
+                    return NULL_POINTER;
+                case Opcodes.MONITOREXIT:
+                    return MONITOR;
+                case Opcodes.IRETURN:
+                case Opcodes.LRETURN:
+                case Opcodes.FRETURN:
+                case Opcodes.DRETURN:
+                case Opcodes.ARETURN:
+                case Opcodes.RETURN:
+                    return ILLEGAL_MONITOR; // if structured locking is violated
+                case Opcodes.LDC: {
+                    Object cst = ((LdcInsnNode) insnNode).cst;
+                    if (cst instanceof Type || cst instanceof Handle) {
+                        return ERRORS;
+                    } else if (cst instanceof Number || cst instanceof String) {
+                        return VIRTUAL_MACHINE_ERRORS;
+                    }
+                    return ANYTHING; // dynamically-computed constant -- bootstrap method can throw anything
                 }
-            } else if (insnNode instanceof LookupSwitchInsnNode) {
-                // If switch, fork walk cases and default
-                LookupSwitchInsnNode lookupSwitchInsnNode = (LookupSwitchInsnNode) insnNode;
+                default:
+                    return VIRTUAL_MACHINE_ERRORS;
+            }
+        }
+        
+        int[] reachableHandlers(int[] blocks, InsnList insnList, List<TryCatchBlockNode> tryCatchBlockNodes) {
+            int[] handlers = new int[blocks.length];
+            int handlerCount = 0;
+            
+            boolean[] caughtTypes = new boolean[types.length];
+            int remainingTypes = types.length;
+            boolean remainingErrors = errors;
+            boolean remainingVmErrors = true;
+            for (int block : blocks) {
+                TryCatchBlockNode tryCatchBlockNode = tryCatchBlockNodes.get(block);
+                String type = tryCatchBlockNode.type;
                 
-                for (LabelNode labelNode : lookupSwitchInsnNode.labels) {
-                    forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, labelNode, loops);
-                }
-                forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, lookupSwitchInsnNode.dflt, loops);
-                insnNode = null;
-            } else if (insnNode instanceof TableSwitchInsnNode) {
-                // If switch, fork walk cases and default
-                TableSwitchInsnNode tableSwitchInsnNode = (TableSwitchInsnNode) insnNode;
-
-                for (LabelNode labelNode : tableSwitchInsnNode.labels) {
-                    forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, labelNode, loops);
+                boolean catchesAll = type == null || type.equals(THROWABLE);
+                boolean catches = catchesAll || anything;
+                for (int i = 0; i < types.length; i++) {
+                    if (!caughtTypes[i] && isSubclass(types[i], type)) {
+                        caughtTypes[i] = true;
+                        remainingTypes--;
+                        catches = true;
+                    }
                 }
-                forkWalk(walkedLabels, insnList, tryCatchBlockNodes, insnNode, tableSwitchInsnNode.dflt, loops);
-                insnNode = null;
-            } else {
-                // If not a return/throw, this instruction will move to the next instruction in the list
-                switch (insnNode.getOpcode()) {
-                    case Opcodes.RETURN:
-                    case Opcodes.IRETURN:
-                    case Opcodes.FRETURN:
-                    case Opcodes.LRETURN:
-                    case Opcodes.DRETURN:
-                    case Opcodes.ARETURN:
-                    case Opcodes.ATHROW: {
-                        // Should we have special handling for ATHROW? If in a try-catch of type being thrown, otherwise we break out.
-                        //
-                        // This seems like something we should do, but the model we have right now of marking every instruction in a
-                        // try-catch block as a possible branch to the catch handler seems good enough for now. Do this in the future maybe.
-                        insnNode = null;
-                        break;
+                if (remainingErrors && !catchesAll) {
+                    if (ERROR.equals(type)) {
+                        remainingErrors = false;
+                        catches = true;
+                    } else if (!isKnownNonError(type)) {
+                        catches = true; // unknown type -- may be a subclass of Error
                     }
-                    default: {
-                        insnNode = insnNode.getNext();
-                        break;
+                }
+                if (remainingVmErrors && !catchesAll) {
+                    if (ERROR.equals(type) || VME.equals(type)) {
+                        remainingVmErrors = false;
+                        catches = true;
+                    } else if (isSubclass(type, VME) || !SUPERCLASSES.containsKey(type)) {
+                        catches = true; // catches some VirtualMachineErrors, or unknown type -- may be a subclass of VirtualMachineError
                     }
                 }
+                
+                if (catches) {
+                    handlers[handlerCount++] = insnList.indexOf(tryCatchBlockNode.handler);
+                }
+                if (catchesAll || (!anything && !remainingErrors && !remainingVmErrors && remainingTypes == 0)) {
+                    break;
+                }
             }
+            
+            return Arrays.copyOf(handlers, handlerCount);
         }
         
-        return loops;
-    }
-    
-    private static void forkWalk(
-            Set<LabelNode> walkedLabels, InsnList insnList, List<TryCatchBlockNode> tryCatchBlockNodes,
-            AbstractInsnNode currentInsnNode, LabelNode labelNode, Set<Loop> container) {
-        // forking to a label we've already walked? it's a loop -- add a loop and leave
-        if (walkedLabels.contains(labelNode)) {
-            Loop loop = new Loop(currentInsnNode, labelNode);
-            container.add(loop);
-            return;
-        }
-        
-        // otherwise, start walking at the label
-          // copy walkedLabels because the call to walk adds elements -- we don't want to keep these
-          // elements because the call is a fork... doing stuff on a fork must not have sideeffects
-          // on what it was forked from.
-        Set<Loop> cycles = walk(labelNode, insnList, tryCatchBlockNodes, new HashSet<>(walkedLabels));
-        container.addAll(cycles);
-    }
+        private static boolean isSubclass(String type, String superType) {
+            while (type != null) {
+                if (type.equals(superType)) {
+                    return true;
+                }
+                type = SUPERCLASSES.get(type);
+            }
+            return false;
+        }
         
-    
-    
-    
-    
+        private static boolean isKnownNonError(String type) {
+            return SUPERCLASSES.containsKey(type) && !isSubclass(type, ERROR);
+        }
+    }
+
+
+
+
+
     public static final class Loop {
         private final AbstractInsnNode fromInsnNode;
         private final LabelNode toInsnNode;
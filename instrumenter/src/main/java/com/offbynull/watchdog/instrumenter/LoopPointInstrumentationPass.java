@@ -25,12 +25,21 @@ import static com.offbynull.watchdog.instrumenter.generators.GenericGenerators.l
 import static com.offbynull.watchdog.instrumenter.generators.GenericGenerators.merge;
 import com.offbynull.watchdog.user.Watchdog;
 import java.lang.reflect.Method;
+import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 import org.apache.commons.lang3.reflect.MethodUtils;
+import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
 import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
 import static com.offbynull.watchdog.instrumenter.LoopAnalyzer.findLoops;
 
 final class LoopPointInstrumentationPass implements InstrumentationPass {
@@ -49,18 +58,76 @@ final class LoopPointInstrumentationPass implements InstrumentationPass {
             InsnList insnList = methodNode.instructions;
             
             Set<Loop> loops = findLoops(methodNode.instructions, methodNode.tryCatchBlocks);
+            Set<LabelNode> boundaryLabels = findBoundaryLabels(methodNode);
             
-            // Call the watchdog
+            // Call the watchdog once at the start of each loop header (every iteration of a loop passes through its header), rather than
+            // once per back edge. Headers are labels -- the call goes after the label and whatever frame/line number follows it, such
+            // that the frame stays at the start of the block. Loops that share a header share the same call.
             loops.stream()
-                    .map(x -> x.getFromInsnNode())
+                    .map(x -> findInsertionPoint(x.getToInsnNode(), boundaryLabels))
+                    .distinct()
                     .forEach(insnNode -> {
                         InsnList trackInsnList = merge(
+                            copySkippedFrame(insnNode),
                             debugMarker(markerType, "Invoking watchdog branch tracker"),
                             call(ON_BRANCH_METHOD, loadVar(watchdogVar))
                         );
 
-                        insnList.insertBefore(insnNode, trackInsnList);
+                        insnList.insert(insnNode, trackInsnList);
                     });
         }
     }
+    
+    // Labels that the call can't be moved past -- moving it past the start/end of a try-catch range changes which handlers cover it, and
+    // moving it past a jump target lets jumps to that target skip it.
+    private static Set<LabelNode> findBoundaryLabels(MethodNode methodNode) {
+        Set<LabelNode> ret = new HashSet<>();
+        for (TryCatchBlockNode tryCatchBlockNode : methodNode.tryCatchBlocks) {
+            ret.add(tryCatchBlockNode.start);
+            ret.add(tryCatchBlockNode.end);
+            ret.add(tryCatchBlockNode.handler);
+        }
+        for (AbstractInsnNode insnNode : methodNode.instructions.toArray()) {
+            if (insnNode instanceof JumpInsnNode) {
+                ret.add(((JumpInsnNode) insnNode).label);
+            } else if (insnNode instanceof TableSwitchInsnNode) {
+                ret.add(((TableSwitchInsnNode) insnNode).dflt);
+                ret.addAll(((TableSwitchInsnNode) insnNode).labels);
+            } else if (insnNode instanceof LookupSwitchInsnNode) {
+                ret.add(((LookupSwitchInsnNode) insnNode).dflt);
+                ret.addAll(((LookupSwitchInsnNode) insnNode).labels);
+            }
+        }
+        return ret;
+    }
+
+    private static AbstractInsnNode findInsertionPoint(AbstractInsnNode insnNode, Set<LabelNode> boundaryLabels) {
+        AbstractInsnNode next = insnNode.getNext();
+        while (isNonInstruction(next) && !boundaryLabels.contains(next)) {
+            insnNode = next;
+            next = insnNode.getNext();
+        }
+        return insnNode;
+    }
+
+    // If the insertion point stopped short of a boundary label, the frame for the block may come after that label. Once the call is in,
+    // the header and the boundary label are no longer at the same offset, so the header needs a frame of its own. The call is
+    // stack-neutral, so the same frame is valid at both.
+    private static InsnList copySkippedFrame(AbstractInsnNode insnNode) {
+        InsnList ret = new InsnList();
+        for (AbstractInsnNode next = insnNode.getNext(); isNonInstruction(next); next = next.getNext()) {
+            if (next instanceof FrameNode) {
+                FrameNode frameNode = (FrameNode) next;
+                ret.add(new FrameNode(frameNode.type,
+                        frameNode.local.size(), frameNode.local.toArray(),
+                        frameNode.stack.size(), frameNode.stack.toArray()));
+                break;
+            }
+        }
+        return ret;
+    }
+
+    private static boolean isNonInstruction(AbstractInsnNode insnNode) {
+        return insnNode instanceof LabelNode || insnNode instanceof FrameNode || insnNode instanceof LineNumberNode;
+    }
 }
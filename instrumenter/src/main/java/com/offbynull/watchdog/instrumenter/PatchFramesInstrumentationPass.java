@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.instrumenter;
+
+import com.offbynull.watchdog.instrumenter.asm.VariableTable.Variable;
+import static com.offbynull.watchdog.instrumenter.FramePatcher.patchVariable;
+import static com.offbynull.watchdog.instrumenter.FramePatcher.usesFrames;
+import java.util.Map.Entry;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+final class PatchFramesInstrumentationPass implements InstrumentationPass {
+
+    @Override
+    public void pass(ClassNode classNode, InstrumentationState state) {
+        if (!usesFrames(classNode)) {
+            return;
+        }
+
+        for (Entry<MethodNode, MethodProperties> entry : state.identifiedMethods().entrySet()) {
+            MethodNode methodNode = entry.getKey();
+            MethodProperties methodProperties = entry.getValue();
+
+            Variable watchdogVar = methodProperties.watchdogVariable();
+            
+            patchVariable(methodNode, watchdogVar);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.instrumenter;
+
+import static com.offbynull.watchdog.instrumenter.InternalFields.INSTRUMENTED_MARKER_FIELD_NAME;
+import static com.offbynull.watchdog.instrumenter.InternalFields.INSTRUMENTED_MARKER_FIELD_VALUE;
+import com.offbynull.watchdog.user.Watch;
+import com.offbynull.watchdog.user.Watchdog;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.lang3.Validate;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+final class PreScanAnalyzer {
+    private static final int CONSTANT_UTF8_TAG = 1;
+
+    private static final Type WATCHDOG_TYPE = Type.getType(Watchdog.class);
+    private static final Type WATCH_TYPE = Type.getType(Watch.class);
+    
+    // Every class that needs instrumenting has at least one of these in its constant pool (as an annotation type, as part of a method
+    // descriptor, or as the name of the marker field). Both the Watch and Watchdog descriptors share the same prefix, so one check covers
+    // the two of them.
+    private static final byte[][] CONSTANT_POOL_NEEDLES = new byte[][] {
+        ("L" + Type.getInternalName(Watch.class)).getBytes(StandardCharsets.US_ASCII),
+        INSTRUMENTED_MARKER_FIELD_NAME.getBytes(StandardCharsets.US_ASCII)
+    };
+
+    private PreScanAnalyzer() {
+        // do nothing
+    }
+    
+    // How does this work?
+    //
+    // Building the tree model for a class, running it through all the passes, and writing it back out (computing frames along the way) is
+    // expensive. Most classes on a classpath have nothing to do with watchdogs, so this does a cheap check up front to weed them out...
+    //
+    // 1. Walk the constant pool (ClassReader already indexes it on construction) looking for the needles above. Both are plain ASCII, and
+    //    modified UTF-8 never uses ASCII bytes as part of a multi-byte sequence, so a raw byte search is enough. If neither shows up, the
+    //    class can't have anything to instrument.
+    // 2. Otherwise, stream the class with code, debug info, and frames skipped. Only the class/method annotations, method descriptors, and
+    //    field names get looked at, which is enough to make the same decision that AnalyzeInstrumentationPass makes (is there a method that
+    //    takes in a Watchdog or is annotated with Watch / is in a class annotated with Watch).
+    //
+    // If the class has already been instrumented, the marker's version is checked the same way CheckMarkerInstrumentationPass does it and
+    // the class is reported as not needing instrumentation.
+    static boolean requiresInstrumentation(ClassReader classReader) {
+        Validate.notNull(classReader);
+
+        if (!constantPoolContainsNeedle(classReader)) {
+            return false;
+        }
+
+        ScanClassVisitor visitor = new ScanClassVisitor();
+        classReader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        
+        if (visitor.markerValue != null) {
+            Validate.isTrue(
+                    ((Long) visitor.markerValue) == INSTRUMENTED_MARKER_FIELD_VALUE,
+                    "Class %s instrumented with different version of instrumented: %d", visitor.name, visitor.markerValue);
+            return false;
+        }
+
+        if (visitor.classAnnotated) {
+            return visitor.concreteMethodFound;
+        }
+        return visitor.watchedMethodFound;
+    }
+
+    private static boolean constantPoolContainsNeedle(ClassReader classReader) {
+        int itemCount = classReader.getItemCount();
+        for (int i = 1; i < itemCount; i++) {
+            int offset = classReader.getItem(i);
+            if (offset == 0 || classReader.readByte(offset - 1) != CONSTANT_UTF8_TAG) { // 0 = unusable slot (2nd half of long/double)
+                continue;
+            }
+            
+            int len = classReader.readUnsignedShort(offset);
+            int start = offset + 2;
+            for (byte[] needle : CONSTANT_POOL_NEEDLES) {
+                if (contains(classReader, start, len, needle)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(ClassReader classReader, int start, int len, byte[] needle) {
+        int lastStart = start + len - needle.length;
+        for (int i = start; i <= lastStart; i++) {
+            int j = 0;
+            while (j < needle.length && (byte) classReader.readByte(i + j) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    private static final class ScanClassVisitor extends ClassVisitor {
+        private String name;
+        private Object markerValue;
+        private boolean classAnnotated;
+        private boolean concreteMethodFound;
+        private boolean watchedMethodFound;
+
+        ScanClassVisitor() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            if (visible && WATCH_TYPE.getDescriptor().equals(desc)) {
+                classAnnotated = true;
+            }
+            return null;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            if (INSTRUMENTED_MARKER_FIELD_NAME.equals(name)) {
+                markerValue = value;
+            }
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            // Skip methods without implementation (abstract/native)
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+                return null;
+            }
+            concreteMethodFound = true;
+
+            if (watchedMethodFound) {
+                return null;
+            }
+
+            for (Type argType : Type.getArgumentTypes(desc)) {
+                if (argType.equals(WATCHDOG_TYPE)) {
+                    watchedMethodFound = true;
+                    return null;
+                }
+            }
+            
+            return new MethodVisitor(Opcodes.ASM5) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                    if (visible && WATCH_TYPE.getDescriptor().equals(desc)) {
+                        watchedMethodFound = true;
+                    }
+                    return null;
+                }
+            };
+        }
+    }
+}
@@ -94,7 +94,8 @@ public final class ClassResourceClassInformationRepository implements ClassInfor
     //regards,
     //Rémi
     
-    // NOTE: If this doesn't work, try to do what Remi said with regards to patching the existing stackmap frames.
+    // NOTE: Instrumenter now does what Remi said and patches the existing stackmap frames (see FramePatcher), so it no longer asks for
+    //       common super classes when writing classes out.
     
     @Override
     public ClassInformation getInformation(String internalClassName) {
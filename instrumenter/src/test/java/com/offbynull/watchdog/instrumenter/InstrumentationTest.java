@@ -1,5 +1,6 @@
 package com.offbynull.watchdog.instrumenter;
 
+import com.offbynull.watchdog.instrumenter.asm.ClassInformationRepository;
 import com.offbynull.watchdog.instrumenter.generators.DebugGenerators.MarkerType;
 import com.offbynull.watchdog.instrumenter.testhelpers.TestUtils;
 import com.offbynull.watchdog.instrumenter.testhelpers.TestUtils.JarEntry;
@@ -252,6 +253,42 @@ public final class InstrumentationTest {
         assertArrayEquals(classInstrumented1stPass, classInstrumented2stPass);
     }
     
+    @Test
+    public void mustNotTouchClassesThatDontNeedInstrumentation() throws Exception {
+        // Load class
+        byte[] classContent = readZipFromResource("StaticMethodTest.zip").get("StaticMethodTest.class");
+        
+        // Create JAR out of class so it can be found by the instrumenter
+        List<TestUtils.JarEntry> originalJarEntries = new ArrayList<>();
+        originalJarEntries.add(new JarEntry("StaticMethodTest.class", classContent));
+        File originalJarFile = createJar(originalJarEntries.toArray(new JarEntry[0]));
+        
+        // Get current classpath (includes core JVM classes) and add to it the newly created JAR
+        List<File> classpath = getClasspath();
+        classpath.add(originalJarFile);
+
+        // Create the instrumenter and make sure the class comes back as-is (no watchdog references, so no marker gets added either)
+        Instrumenter instrumenter = new Instrumenter(classpath);
+        InstrumentationSettings settings = new InstrumentationSettings(MarkerType.CONSTANT);
+        
+        byte[] classInstrumented = instrumenter.instrument(classContent, settings).getInstrumentedClass();
+        
+        assertArrayEquals(classContent, classInstrumented);
+    }
+    
+    @Test
+    public void mustNotLookUpClassHierarchiesWhenInstrumenting() throws Exception {
+        // Frames are patched rather than recomputed, so the instrumenter should never need to ask the repository about class hierarchies
+        Instrumenter instrumenter = new Instrumenter((ClassInformationRepository) internalClassName -> {
+            throw new IllegalStateException("Unexpected class hierarchy lookup: " + internalClassName);
+        });
+        InstrumentationSettings settings = new InstrumentationSettings(MarkerType.CONSTANT);
+        
+        instrumenter.instrument(readZipFromResource("TightLoopTest.zip").get("TightLoopTest.class"), settings);
+        instrumenter.instrument(readZipFromResource("RecursiveMixTest.zip").get("RecursiveMixTest.class"), settings);
+        instrumenter.instrument(readZipFromResource("InstantiationTest.zip").get("InstantiationTest.class"), settings);
+    }
+    
     private <T> T createObject(Class<T> cls, Object... args) {
         try {
             return (T) invokeConstructor(cls, args);
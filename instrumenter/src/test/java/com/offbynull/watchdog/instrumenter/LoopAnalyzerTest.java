@@ -1,19 +1,23 @@
 package com.offbynull.watchdog.instrumenter;
 
 import com.offbynull.watchdog.instrumenter.LoopAnalyzer.Loop;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import org.junit.jupiter.api.Test;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
 import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LdcInsnNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
 import org.objectweb.asm.tree.TryCatchBlockNode;
 import static com.offbynull.watchdog.instrumenter.LoopAnalyzer.findLoops;
@@ -467,9 +471,9 @@ public class LoopAnalyzerTest {
         insnList.add(labelTryCatch);
         insnList.add(new InsnNode(Opcodes.NOP));
         insnList.add(labelTryStart_1);
-        insnList.add(new InsnNode(Opcodes.NOP));
+        insnList.add(new InsnNode(Opcodes.IDIV));
         insnList.add(labelTryStart_2);
-        insnList.add(new InsnNode(Opcodes.NOP));
+        insnList.add(new InsnNode(Opcodes.IDIV));
         insnList.add(labelTryEnd_1);
         insnList.add(jumpToTryCatch);
         insnList.add(labelTryEnd_2);
@@ -488,16 +492,164 @@ public class LoopAnalyzerTest {
 
     @Test
     public void mustFindLoopInTightSelfLoopingTryCatch() {
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new InsnNode(Opcodes.IDIV));
+        insnList.add(labelTryEnd);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, null));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        expectedLoops.add(new Loop(insnList.get(1), labelTryStart));
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustNotFindLoopInSelfLoopingTryCatchWithInstructionsThatCantThrow() {
         LabelNode labelTryStart = new LabelNode();
         LabelNode labelTryEnd = new LabelNode();
         InsnList insnList = new InsnList();
         insnList.add(labelTryStart);
         insnList.add(new InsnNode(Opcodes.NOP));
+        insnList.add(new InsnNode(Opcodes.IADD));
+        insnList.add(new InsnNode(Opcodes.POP));
+        insnList.add(labelTryEnd);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/lang/RuntimeException"));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustFindLoopInSelfLoopingCatchAllTryCatchWithInstructionsThatCantThrow() {
+        // Any instruction can throw a VirtualMachineError (e.g. OutOfMemoryError), so a catch-all handler is always reachable
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new InsnNode(Opcodes.NOP));
+        insnList.add(new InsnNode(Opcodes.IADD));
+        insnList.add(new InsnNode(Opcodes.POP));
         insnList.add(labelTryEnd);
         
         List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
         tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, null));
         
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        expectedLoops.add(new Loop(insnList.get(1), labelTryStart));
+        expectedLoops.add(new Loop(insnList.get(2), labelTryStart));
+        expectedLoops.add(new Loop(insnList.get(3), labelTryStart));
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustFindLoopInOutOfMemoryErrorHandler() {
+        // try { new int[10]; } catch (OutOfMemoryError e) { while (true) {} }
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        LabelNode labelTryCatch = new LabelNode();
+        LabelNode labelLoop = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new LdcInsnNode(10));
+        insnList.add(new IntInsnNode(Opcodes.NEWARRAY, Opcodes.T_INT));
+        insnList.add(new InsnNode(Opcodes.POP));
+        insnList.add(labelTryEnd);
+        insnList.add(new InsnNode(Opcodes.RETURN));
+        insnList.add(labelTryCatch);
+        insnList.add(new InsnNode(Opcodes.POP));
+        insnList.add(labelLoop);
+        insnList.add(new JumpInsnNode(Opcodes.GOTO, labelLoop));
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryCatch, "java/lang/OutOfMemoryError"));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        expectedLoops.add(new Loop(insnList.get(9), labelLoop));
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustNotFindLoopInSelfLoopingTryCatchThatCantCatchWhatsThrown() {
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new InsnNode(Opcodes.IDIV));
+        insnList.add(new InsnNode(Opcodes.IALOAD));
+        insnList.add(labelTryEnd);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/io/IOException"));
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/lang/ClassCastException"));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustFindLoopInSelfLoopingTryCatchThatCatchesSuperclassOfWhatsThrown() {
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new InsnNode(Opcodes.NOP));
+        insnList.add(new InsnNode(Opcodes.IALOAD));
+        insnList.add(labelTryEnd);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/lang/IndexOutOfBoundsException"));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        expectedLoops.add(new Loop(insnList.get(2), labelTryStart));
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustNotFindLoopInTryCatchShadowedByEarlierCatchAll() {
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        LabelNode labelTryCatch = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "Test", "test", "()V", false));
+        insnList.add(labelTryEnd);
+        insnList.add(new InsnNode(Opcodes.RETURN));
+        insnList.add(labelTryCatch);
+        insnList.add(new InsnNode(Opcodes.RETURN));
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryCatch, "java/lang/Throwable"));
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/lang/RuntimeException"));
+        
+        Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
+        Set<Loop> expectedLoops = new HashSet<>();
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustFindLoopInTryCatchForInvocationsRegardlessOfType() {
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        InsnList insnList = new InsnList();
+        insnList.add(labelTryStart);
+        insnList.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "Test", "test", "()V", false));
+        insnList.add(labelTryEnd);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryStart, "java/io/IOException"));
+        
         Set<Loop> actualLoops = findLoops(insnList, tryCatchBlockNodes);
         Set<Loop> expectedLoops = new HashSet<>();
         expectedLoops.add(new Loop(insnList.get(1), labelTryStart));
@@ -556,4 +708,71 @@ public class LoopAnalyzerTest {
         expectedLoops.add(new Loop(jumpMain, labelMain));
         assertEquals(expectedLoops, actualLoops);
     }
+    
+    @Test
+    public void mustFindLoopAroundManySequentialBranchesQuickly() {
+        // Each branch doubles the number of paths through the method -- walking every path would never finish
+        LabelNode labelStart = new LabelNode();
+        JumpInsnNode jumpToStart = new JumpInsnNode(Opcodes.GOTO, labelStart);
+        InsnList insnList = new InsnList();
+        insnList.add(labelStart);
+        for (int i = 0; i < 20000; i++) {
+            LabelNode labelSkip = new LabelNode();
+            insnList.add(new LdcInsnNode(1));
+            insnList.add(new LdcInsnNode(2));
+            insnList.add(new JumpInsnNode(Opcodes.IF_ICMPEQ, labelSkip));
+            insnList.add(new InsnNode(Opcodes.NOP));
+            insnList.add(labelSkip);
+        }
+        insnList.add(jumpToStart);
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        
+        Set<Loop> actualLoops = assertTimeoutPreemptively(Duration.ofSeconds(10L), () -> findLoops(insnList, tryCatchBlockNodes));
+        Set<Loop> expectedLoops = new HashSet<>();
+        expectedLoops.add(new Loop(jumpToStart, labelStart));
+        assertEquals(expectedLoops, actualLoops);
+    }
+    
+    @Test
+    public void mustFindLoopsInLargeStateMachineQuickly() {
+        // Every case jumps back to the dispatching switch, and every case is inside the same try-catch block
+        int caseCount = 20000;
+        LabelNode labelTryStart = new LabelNode();
+        LabelNode labelTryEnd = new LabelNode();
+        LabelNode labelTryCatch = new LabelNode();
+        LabelNode labelDispatch = new LabelNode();
+        LabelNode labelDefault = new LabelNode();
+        LabelNode[] labelCases = new LabelNode[caseCount];
+        JumpInsnNode[] jumpToDispatches = new JumpInsnNode[caseCount];
+        for (int i = 0; i < caseCount; i++) {
+            labelCases[i] = new LabelNode();
+            jumpToDispatches[i] = new JumpInsnNode(Opcodes.GOTO, labelDispatch);
+        }
+        TableSwitchInsnNode tableSwitch = new TableSwitchInsnNode(0, caseCount - 1, labelDefault, labelCases);
+        InsnList insnList = new InsnList();
+        insnList.add(labelDispatch);
+        insnList.add(labelTryStart);
+        insnList.add(new LdcInsnNode(0));
+        insnList.add(tableSwitch);
+        for (int i = 0; i < caseCount; i++) {
+            insnList.add(labelCases[i]);
+            insnList.add(jumpToDispatches[i]);
+        }
+        insnList.add(labelTryEnd);
+        insnList.add(labelDefault);
+        insnList.add(new InsnNode(Opcodes.RETURN));
+        insnList.add(labelTryCatch);
+        insnList.add(new InsnNode(Opcodes.RETURN));
+        
+        List<TryCatchBlockNode> tryCatchBlockNodes = new ArrayList<>();
+        tryCatchBlockNodes.add(new TryCatchBlockNode(labelTryStart, labelTryEnd, labelTryCatch, null));
+        
+        Set<Loop> actualLoops = assertTimeoutPreemptively(Duration.ofSeconds(10L), () -> findLoops(insnList, tryCatchBlockNodes));
+        Set<Loop> expectedLoops = new HashSet<>();
+        for (int i = 0; i < caseCount; i++) {
+            expectedLoops.add(new Loop(jumpToDispatches[i], labelDispatch));
+        }
+        assertEquals(expectedLoops, actualLoops);
+    }
 }
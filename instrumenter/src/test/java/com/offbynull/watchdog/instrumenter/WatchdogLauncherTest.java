@@ -0,0 +1,540 @@
+package com.offbynull.watchdog.instrumenter;
+
+import com.offbynull.watchdog.user.CodeInterruptedException;
+import com.offbynull.watchdog.user.VirtualWatchdogClock;
+import com.offbynull.watchdog.user.Watchdog;
+import com.offbynull.watchdog.user.WatchdogClock;
+import com.offbynull.watchdog.user.WatchdogExecutorService;
+import com.offbynull.watchdog.user.WatchdogLauncher;
+import com.offbynull.watchdog.user.WatchdogShadowRecorder;
+import com.offbynull.watchdog.user.WatchdogShadowRecorder.ShadowReport;
+import com.offbynull.watchdog.user.WatchdogTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogLauncherTest {
+
+    private VirtualWatchdogClock clock;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustNotTriggerFinishedLaunchOnReusedPoolThread() throws Exception {
+        WatchdogExecutorService executor = new WatchdogExecutorService(1);
+        try {
+            executor.submit(100L, wd -> {
+                wd.watchBlocking(t -> t.interrupt());
+                return null; // finishes well within its delay
+            }).get();
+
+            boolean interrupted = executor.submit(1000L, wd -> {
+                clock.advance(150L); // first task's delay elapses while this one runs on the same thread
+                return Thread.currentThread().isInterrupted();
+            }).get();
+
+            assertFalse(interrupted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void mustReturnAnytimeResultIfCallableReturnsAfterDelay() throws Exception {
+        String ret = WatchdogLauncher.watchAnytime(100L, wd -> {
+            wd.publishResult("partial");
+            clock.advance(150L); // watchdog triggers, but nothing checks it before returning
+            return "final";
+        });
+
+        assertEquals("final", ret);
+    }
+
+    @Test
+    public void mustReturnPublishedAnytimeResultIfAborted() throws Exception {
+        String ret = WatchdogLauncher.watchAnytime(100L, wd -> {
+            wd.publishResult("partial");
+            clock.advance(150L);
+            wd.onBranch(); // aborts
+            return "final";
+        });
+
+        assertEquals("partial", ret);
+    }
+
+    @Test
+    public void mustTriggerOnceVirtualClockAdvancesPastDelay() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(100L, wd -> {
+                clock.advance(99L);
+                wd.onBranch();
+                checksPassed.incrementAndGet();
+                clock.advance(1L);
+                wd.onBranch(); // aborts
+                checksPassed.incrementAndGet();
+            });
+        });
+
+        assertEquals(1, checksPassed.get());
+        assertEquals(0, clock.getPendingCount());
+    }
+
+    @Test
+    public void mustTriggerRightAwayIfVirtualClockAutoAdvances() throws Exception {
+        clock.setAutoAdvance(true);
+
+        AtomicInteger checksPassed = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(60000L, wd -> {
+                wd.onBranch(); // aborts
+                checksPassed.incrementAndGet();
+            });
+        });
+
+        assertEquals(0, checksPassed.get());
+    }
+
+    @Test
+    public void mustNotTriggerHeartbeatWhileRenewed() throws Exception {
+        WatchdogLauncher.watchHeartbeat(100L, wd -> {
+            for (int i = 0; i < 10; i++) {
+                clock.advance(60L); // well past the interval in total, but never past it between renewals
+                wd.onBranch();
+                wd.renew();
+            }
+        });
+    }
+
+    @Test
+    public void mustTriggerHeartbeatOnceRenewalsStop() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchHeartbeat(100L, wd -> {
+                clock.advance(60L);
+                wd.renew();
+                clock.advance(99L);
+                wd.onBranch();
+                checksPassed.incrementAndGet();
+                clock.advance(1L); // interval elapsed since last renewal
+                wd.onBranch(); // aborts
+                checksPassed.incrementAndGet();
+            });
+        });
+
+        assertEquals(1, checksPassed.get());
+    }
+
+    @Test
+    public void mustAbortOnlyItemsThatRunOutOfBudget() throws Exception {
+        List<Integer> aborted = new ArrayList<>();
+        WatchdogLauncher.watch(1000L, wd -> {
+            long[] itemTimes = { 40L, 60L, 40L, 100L, 10L };
+            for (int i = 0; i < itemTimes.length; i++) {
+                wd.beginItem(50L);
+                try {
+                    clock.advance(itemTimes[i]);
+                    wd.onBranch();
+                } catch (CodeInterruptedException cie) {
+                    aborted.add(i);
+                } finally {
+                    wd.endItem();
+                }
+            }
+        });
+
+        assertEquals(Arrays.asList(1, 3), aborted);
+    }
+
+    @Test
+    public void mustAbortItemWithSmallerBudgetThanPreviousItem() throws Exception {
+        List<Integer> aborted = new ArrayList<>();
+        WatchdogLauncher.watch(1000L, wd -> {
+            long[] itemBudgets = { 500L, 20L };
+            for (int i = 0; i < itemBudgets.length; i++) {
+                wd.beginItem(itemBudgets[i]);
+                try {
+                    clock.advance(30L);
+                    wd.onBranch();
+                } catch (CodeInterruptedException cie) {
+                    aborted.add(i);
+                } finally {
+                    wd.endItem();
+                }
+            }
+        });
+
+        assertEquals(Arrays.asList(1), aborted);
+    }
+
+    @Test
+    public void mustReportEscapedItemAbortAsTimeout() throws Exception {
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(1000L, wd -> {
+                wd.beginItem(50L);
+                try {
+                    clock.advance(60L);
+                    wd.onBranch(); // aborts item, which isn't caught
+                } finally {
+                    wd.endItem();
+                }
+            });
+        });
+    }
+
+    @Test
+    public void mustNotScheduleTimerForTimerlessLaunch() throws Exception {
+        int[] scheduledCounts = new int[2];
+        int start = clock.getPendingCount();
+        WatchdogLauncher.watch(100L, wd -> {
+            scheduledCounts[0] = clock.getPendingCount() - start;
+        });
+        int timerlessStart = clock.getPendingCount();
+        WatchdogLauncher.watchTimerless(100L, 1, wd -> {
+            scheduledCounts[1] = clock.getPendingCount() - timerlessStart;
+        });
+
+        assertArrayEquals(new int[] { 1, 0 }, scheduledCounts);
+    }
+
+    @Test
+    public void mustTriggerTimerlessLaunchOnlyOnceClockIsPolled() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchTimerless(100L, 4, wd -> {
+                clock.advance(150L); // nothing flags the watchdog here -- only the watched code reading the clock does
+                for (int i = 0; i < 10; i++) {
+                    wd.onBranch(); // clock read on 4th check, which aborts
+                    checksPassed.incrementAndGet();
+                }
+            });
+        });
+
+        assertEquals(3, checksPassed.get());
+    }
+
+    @Test
+    public void mustNotTriggerTimerlessLaunchBeforeDelay() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        WatchdogLauncher.watchTimerless(100L, 1, wd -> {
+            for (int i = 0; i < 99; i++) {
+                clock.advance(1L);
+                wd.onBranch();
+                checksPassed.incrementAndGet();
+            }
+        });
+
+        assertEquals(99, checksPassed.get());
+    }
+
+    @Test
+    public void mustTimeOutTimerlessLaunchThatReturnsAfterDelayWithoutChecking() throws Exception {
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchTimerless(100L, 1000, wd -> {
+                clock.advance(150L);
+            });
+        });
+    }
+
+    @Test
+    public void mustNotInvokeBlockedInterruptersForTimerlessLaunch() throws Exception {
+        AtomicInteger interrupts = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchTimerless(100L, 1, wd -> {
+                wd.watchBlocking(t -> interrupts.incrementAndGet());
+                clock.advance(150L);
+                wd.onBranch(); // aborts
+            });
+        });
+
+        assertEquals(0, interrupts.get());
+    }
+
+    @Test
+    public void mustKeepRunningTimeSlicedLaunchAcrossSlices() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        WatchdogLauncher.watchTimeSliced(1000L, 10L, 1, wd -> {
+            for (int i = 0; i < 50; i++) {
+                clock.advance(15L); // each check lands past the end of a slice
+                wd.onBranch();
+                checksPassed.incrementAndGet();
+            }
+        });
+
+        assertEquals(50, checksPassed.get());
+    }
+
+    @Test
+    public void mustHandOffOnlyOnceTimeSliceElapses() throws Exception {
+        CountingWatchdogClock countingClock = new CountingWatchdogClock(clock);
+        WatchdogLauncher.setClock(countingClock);
+
+        int[] clockReads = new int[3];
+        WatchdogLauncher.watchTimeSliced(1000L, 10L, 4, wd -> {
+            // The clock is read once every 4 checks, plus once more to restart the slice whenever the CPU gets handed off
+            int start = countingClock.getReadCount();
+            for (int i = 0; i < 4; i++) {
+                wd.onBranch();
+            }
+            clockReads[0] = countingClock.getReadCount() - start; // slice not over -- no hand off
+
+            start = countingClock.getReadCount();
+            clock.advance(10L);
+            for (int i = 0; i < 4; i++) {
+                wd.onBranch();
+            }
+            clockReads[1] = countingClock.getReadCount() - start; // slice over -- hand off
+
+            start = countingClock.getReadCount();
+            for (int i = 0; i < 4; i++) {
+                wd.onBranch();
+            }
+            clockReads[2] = countingClock.getReadCount() - start; // new slice started at hand off -- no hand off
+        });
+
+        assertArrayEquals(new int[] { 1, 2, 1 }, clockReads);
+    }
+
+    @Test
+    public void mustTriggerTimeSlicedLaunchOnceDelayElapses() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchTimeSliced(100L, 10L, 1, wd -> {
+                for (int i = 0; i < 50; i++) {
+                    clock.advance(15L);
+                    wd.onBranch(); // aborts on 7th iteration
+                    checksPassed.incrementAndGet();
+                }
+            });
+        });
+
+        assertEquals(6, checksPassed.get());
+    }
+
+    @Test
+    public void mustPauseThrottledLaunchOnceSoftDelayElapses() throws Exception {
+        long[] branchTimes = new long[4];
+        WatchdogLauncher.watchThrottled(60000L, 100L, 50L, 100L, wd -> {
+            branchTimes[0] = timeBranch(wd); // soft delay not elapsed -- no pause
+
+            clock.advance(100L);
+            branchTimes[1] = timeBranch(wd); // soft delay elapsed -- pause
+
+            branchTimes[2] = timeBranch(wd); // run time not elapsed since pause -- no pause
+
+            clock.advance(50L);
+            branchTimes[3] = timeBranch(wd); // run time elapsed since pause -- pause
+        });
+
+        assertTrue(branchTimes[0] < MILLISECONDS.toNanos(100L));
+        assertTrue(branchTimes[1] >= MILLISECONDS.toNanos(100L));
+        assertTrue(branchTimes[2] < MILLISECONDS.toNanos(100L));
+        assertTrue(branchTimes[3] >= MILLISECONDS.toNanos(100L));
+    }
+
+    @Test
+    public void mustCutThrottlePauseShortOnceDelayElapses() throws Exception {
+        Thread mainThread = Thread.currentThread();
+        Thread triggerThread = new Thread(() -> {
+            while (mainThread.getState() != Thread.State.TIMED_WAITING) { // wait for main thread to start pausing
+                Thread.yield();
+            }
+            clock.advance(1000L);
+        });
+
+        AtomicInteger checksPassed = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            assertThrows(WatchdogTimeoutException.class, () -> {
+                WatchdogLauncher.watchThrottled(1000L, 100L, 50L, 60000L, wd -> {
+                    clock.advance(100L);
+                    triggerThread.start();
+                    wd.onBranch(); // pauses, but woken up early by trigger
+                    checksPassed.incrementAndGet();
+                    wd.onBranch(); // aborts
+                    checksPassed.incrementAndGet();
+                });
+            });
+        } finally {
+            triggerThread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(1, checksPassed.get());
+        assertTrue(elapsed < MILLISECONDS.toNanos(60000L));
+    }
+
+    @Test
+    public void mustNotResumeOnceTriggeredWhileDetached() throws Exception {
+        AtomicInteger piecesRun = new AtomicInteger();
+        Watchdog watchdog = WatchdogLauncher.open(100L);
+        try {
+            WatchdogLauncher.resume(watchdog, wd -> {
+                wd.onBranch();
+                piecesRun.incrementAndGet();
+            });
+
+            clock.advance(150L); // delay elapses in between pieces
+
+            assertThrows(WatchdogTimeoutException.class, () -> {
+                WatchdogLauncher.resume(watchdog, wd -> {
+                    piecesRun.incrementAndGet();
+                });
+            });
+            assertFalse(Thread.currentThread().isInterrupted()); // blocked interrupters never ran against this thread
+        } finally {
+            WatchdogLauncher.close(watchdog);
+        }
+
+        assertEquals(1, piecesRun.get());
+    }
+
+    @Test
+    public void mustAbortResumedPieceOnceDelayElapsesAcrossPieces() throws Exception {
+        AtomicInteger checksPassed = new AtomicInteger();
+        Watchdog watchdog = WatchdogLauncher.open(100L);
+        try {
+            WatchdogLauncher.resume(watchdog, wd -> {
+                clock.advance(60L);
+                wd.onBranch();
+                checksPassed.incrementAndGet();
+            });
+
+            clock.advance(30L); // time in between pieces counts too
+
+            assertThrows(WatchdogTimeoutException.class, () -> {
+                WatchdogLauncher.resume(watchdog, wd -> {
+                    wd.onBranch();
+                    checksPassed.incrementAndGet();
+                    clock.advance(10L);
+                    wd.onBranch(); // aborts
+                    checksPassed.incrementAndGet();
+                });
+            });
+        } finally {
+            WatchdogLauncher.close(watchdog);
+        }
+
+        assertEquals(2, checksPassed.get());
+    }
+
+    @Test
+    public void mustRecordShadowOverrunWithoutAborting() throws Exception {
+        WatchdogShadowRecorder.reset();
+        try {
+            String ret = WatchdogLauncher.watchShadow("key", 100L, wd -> {
+                clock.advance(150L);
+                wd.onBranch(); // doesn't abort, only samples stack
+                return "done";
+            });
+            assertEquals("done", ret);
+            assertFalse(Thread.currentThread().isInterrupted());
+
+            List<ShadowReport> reports = WatchdogShadowRecorder.snapshot();
+            assertEquals(1, reports.size());
+
+            ShadowReport report = reports.get(0);
+            long[] expectedHistogram = new long[WatchdogShadowRecorder.BUCKET_COUNT];
+            expectedHistogram[15] = 1L; // 50000 micros falls in [2^15, 2^16)
+            assertEquals("key", report.getKey());
+            assertEquals(1L, report.getLaunches());
+            assertEquals(1L, report.getOverruns());
+            assertEquals(50000L, report.getMaxOverrun());
+            assertArrayEquals(expectedHistogram, report.getHistogram());
+            assertEquals(1, report.getSampledStacks().size()); // first overrun is always sampled
+        } finally {
+            WatchdogShadowRecorder.reset();
+        }
+    }
+
+    @Test
+    public void mustRecordShadowLaunchThatFinishesInTimeAsNoOverrun() throws Exception {
+        WatchdogShadowRecorder.reset();
+        try {
+            WatchdogLauncher.watchShadow("key", 100L, wd -> {
+                clock.advance(50L);
+                wd.onBranch();
+            });
+
+            ShadowReport report = WatchdogShadowRecorder.snapshot().get(0);
+            assertEquals(1L, report.getLaunches());
+            assertEquals(0L, report.getOverruns());
+            assertEquals(0L, report.getMaxOverrun());
+            assertArrayEquals(new long[WatchdogShadowRecorder.BUCKET_COUNT], report.getHistogram());
+            assertTrue(report.getSampledStacks().isEmpty());
+        } finally {
+            WatchdogShadowRecorder.reset();
+        }
+    }
+
+    @Test
+    public void mustSampleShadowStacksAtInterval() throws Exception {
+        WatchdogShadowRecorder.reset();
+        try {
+            int count = WatchdogShadowRecorder.STACK_SAMPLE_INTERVAL + 1;
+            for (int i = 0; i < count; i++) {
+                WatchdogLauncher.watchShadow("key", 100L, wd -> {
+                    clock.advance(150L);
+                    wd.onBranch();
+                });
+            }
+
+            ShadowReport report = WatchdogShadowRecorder.snapshot().get(0);
+            assertEquals(count, report.getOverruns());
+            assertEquals(2, report.getSampledStacks().size()); // first overrun and the one STACK_SAMPLE_INTERVAL after it
+        } finally {
+            WatchdogShadowRecorder.reset();
+        }
+    }
+
+    private static long timeBranch(Watchdog wd) {
+        long start = System.nanoTime();
+        wd.onBranch();
+        return System.nanoTime() - start;
+    }
+
+
+    private static final class CountingWatchdogClock implements WatchdogClock {
+        private final WatchdogClock backingClock;
+        private final AtomicInteger readCount;
+
+        CountingWatchdogClock(WatchdogClock backingClock) {
+            this.backingClock = backingClock;
+            this.readCount = new AtomicInteger();
+        }
+
+        @Override
+        public long nanoTime() {
+            readCount.incrementAndGet();
+            return backingClock.nanoTime();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delay) {
+            backingClock.schedule(task, delay);
+        }
+
+        int getReadCount() {
+            return readCount.get();
+        }
+    }
+}
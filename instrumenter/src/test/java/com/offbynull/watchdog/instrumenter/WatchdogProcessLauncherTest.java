@@ -0,0 +1,74 @@
+package com.offbynull.watchdog.instrumenter;
+
+import com.offbynull.watchdog.user.VirtualWatchdogClock;
+import com.offbynull.watchdog.user.WatchdogClock;
+import com.offbynull.watchdog.user.WatchdogLauncher;
+import com.offbynull.watchdog.user.WatchdogProcessLauncher;
+import com.offbynull.watchdog.user.WatchdogTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogProcessLauncherTest {
+
+    private VirtualWatchdogClock clock;
+    private List<Process> processes;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        processes = new ArrayList<>();
+        WatchdogLauncher.setClock(clock);
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+        for (Process process : processes) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    @Test
+    public void mustNotDestroyProcessStartedUnderExpiredShadowWatchdog() throws Exception {
+        WatchdogLauncher.watchShadow("key", 100L, wd -> {
+            clock.advance(150L); // already past deadline by the time the process starts
+            processes.add(WatchdogProcessLauncher.start(wd, createSleepProcessBuilder()));
+            return null;
+        });
+
+        assertFalse(processes.get(0).waitFor(1L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void mustDestroyProcessStartedUnderExpiredWatchdog() throws Exception {
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(100L, wd -> {
+                clock.advance(150L); // already past deadline by the time the process starts
+                processes.add(WatchdogProcessLauncher.start(wd, createSleepProcessBuilder()));
+                return null;
+            });
+        });
+
+        assertTrue(processes.get(0).waitFor(10L, TimeUnit.SECONDS));
+    }
+
+    private static ProcessBuilder createSleepProcessBuilder() {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), SleepMain.class.getName());
+    }
+
+
+
+    public static final class SleepMain {
+        public static void main(String[] args) throws Exception {
+            Thread.sleep(60000L);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.offbynull.watchdog.instrumenter.InstrumentationSettings;
 import com.offbynull.watchdog.instrumenter.Instrumenter;
 import com.offbynull.watchdog.instrumenter.asm.ClassResourceClassInformationRepository;
 import com.offbynull.watchdog.instrumenter.generators.DebugGenerators.MarkerType;
+import com.offbynull.watchdog.user.WatchdogProcessLauncher;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
@@ -39,17 +40,23 @@ public final class WatchdogAgent {
     
     /**
      * Java agent premain.
+     * <p>
+     * If this JVM was started by watched code in another process (see {@link WatchdogProcessLauncher}), the main thread is watched until
+     * the deadline passed in by that process. Code launched from the main thread nests under that deadline, and the deadline has no
+     * effect on uninstrumented code -- see {@link WatchdogProcessLauncher#inheritDeadline() } for details. This can be turned off by
+     * passing in {@code inheritDeadline=false}.
      * @param agentArgs args passed in to agent
      * @param inst instrumentation for agent
      * @throws NullPointerException if {@code inst} is {@code null}
      * @throws IllegalArgumentException if {@code agentArgs} is present but not in the expected format, or if the passed in arguments were
-     * not parseable
+     * not parseable, or if the deadline passed in by a parent process was not parseable
      */
     public static void premain(String agentArgs, Instrumentation inst) {
         // How do agent args work? http://stackoverflow.com/questions/23287228/how-do-i-pass-arguments-to-a-java-instrumentation-agent
         // e.g. java -javaagent:/path/to/agent.jar=argumentstring
         
         MarkerType markerType = MarkerType.NONE;
+        boolean inheritDeadline = true;
         if (agentArgs != null && !agentArgs.isEmpty()) {
             String[] splitArgs = agentArgs.split(",");
             for (String splitArg : splitArgs) {
@@ -70,6 +77,9 @@ public final class WatchdogAgent {
                                     + Arrays.toString(MarkerType.values()), iae);
                         }
                         break;                      
+                    case "inheritDeadline":
+                        inheritDeadline = Boolean.parseBoolean(val);
+                        break;
                     default:
                         throw new IllegalArgumentException("Unrecognized arg passed to Watchdog Java agent: " + keyVal);
                 }
@@ -77,6 +87,15 @@ public final class WatchdogAgent {
         }
         
         inst.addTransformer(new WatchdogClassFileTransformer(markerType));
+
+        // Premain runs on the main thread, right before main() gets invoked -- watching the current thread means watching main()
+        if (inheritDeadline) {
+            try {
+                WatchdogProcessLauncher.inheritDeadline();
+            } catch (IllegalArgumentException iae) {
+                throw new IllegalArgumentException("Unable to parse deadline passed in by parent process", iae);
+            }
+        }
     }
     
     private static final class WatchdogClassFileTransformer implements ClassFileTransformer {
@@ -1,5 +1,10 @@
 package com.offbynull.watchdog.javaagent;
 
+import com.offbynull.watchdog.user.Watchdog;
+import com.offbynull.watchdog.user.WatchdogLauncher;
+import com.offbynull.watchdog.user.WatchdogProcessLauncher;
+import com.offbynull.watchdog.user.WatchdogRunnable;
+import com.offbynull.watchdog.user.WatchdogTimeoutException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.instrument.ClassFileTransformer;
@@ -7,10 +12,15 @@ import java.lang.instrument.Instrumentation;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -96,6 +106,114 @@ public class WatchdogAgentTest {
         });
     }
     
+    @Test
+    public void mustWatchCurrentThreadIfDeadlineInherited() throws Exception {
+        Instrumentation inst = mock(Instrumentation.class);
+        String agentArgs = null;
+
+        AtomicReference<Watchdog> watchdog = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        System.setProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY, Long.toString(System.currentTimeMillis() + 60000L));
+        try {
+            Thread thread = new Thread(() -> {
+                try {
+                    WatchdogAgent.premain(agentArgs, inst);
+                    watchdog.set(Watchdog.get());
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            System.clearProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY);
+        }
+
+        assertNull(error.get());
+        assertNotNull(watchdog.get());
+    }
+
+    @Test
+    public void mustNestLaunchesUnderInheritedDeadline() throws Exception {
+        Instrumentation inst = mock(Instrumentation.class);
+        String agentArgs = null;
+
+        AtomicReference<Watchdog> inherited = new AtomicReference<>();
+        AtomicReference<Watchdog> nested = new AtomicReference<>();
+        AtomicReference<Watchdog> restored = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        System.setProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY, Long.toString(System.currentTimeMillis() + 60000L));
+        try {
+            Thread thread = new Thread(() -> {
+                try {
+                    WatchdogAgent.premain(agentArgs, inst);
+                    inherited.set(Watchdog.get());
+                    WatchdogLauncher.watch(60000L, wd -> {
+                        nested.set(Watchdog.get());
+                        return null;
+                    });
+                    restored.set(Watchdog.get());
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            System.clearProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY);
+        }
+
+        assertNull(error.get());
+        assertNotNull(nested.get());
+        assertNotSame(inherited.get(), nested.get());
+        assertSame(inherited.get(), restored.get());
+    }
+
+    @Test
+    public void mustTriggerNestedLaunchOnceInheritedDeadlinePasses() throws Exception {
+        Instrumentation inst = mock(Instrumentation.class);
+        String agentArgs = null;
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        System.setProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY, Long.toString(System.currentTimeMillis()));
+        try {
+            Thread thread = new Thread(() -> {
+                try {
+                    WatchdogAgent.premain(agentArgs, inst);
+                    WatchdogRunnable runnable = wd -> {
+                        while (true) {
+                            wd.onBranch();
+                        }
+                    };
+                    WatchdogLauncher.watch(60000L, runnable);
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            });
+            thread.start();
+            thread.join(10000L);
+        } finally {
+            System.clearProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY);
+        }
+
+        assertTrue(error.get() instanceof WatchdogTimeoutException);
+    }
+
+    @Test
+    public void mustFailIfInheritedDeadlineIncorrect() throws Exception {
+        Instrumentation inst = mock(Instrumentation.class);
+        String agentArgs = null;
+
+        System.setProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY, "fffffffffff");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> {
+                WatchdogAgent.premain(agentArgs, inst);
+            });
+        } finally {
+            System.clearProperty(WatchdogProcessLauncher.DEADLINE_SYSTEM_PROPERTY);
+        }
+    }
+    
     private Map<String, byte[]> readZipFromResource(String path) throws IOException {
         ClassLoader cl = ClassLoader.getSystemClassLoader();
         URL url = cl.getResource(path);
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controls how the {@link CodeInterruptedException} used to break out of watched code gets created.
+ * <p>
+ * Filling in a stack trace is by far the most expensive part of breaking out of watched code. If a large number of watched executions
+ * time out at once (e.g. during an overload spike), that cost adds up at exactly the wrong time. Strategies are available to ...
+ * <ul>
+ * <li>{@link #fullStack() }: create a new exception with a full stack trace on every abort (default).</li>
+ * <li>{@link #stackless() }: re-use a single preallocated exception without a stack trace for every abort.</li>
+ * <li>{@link #sampled(int) }: fill in the stack trace for 1 in every N aborts, the rest get a new exception without a stack trace.</li>
+ * </ul>
+ * Regardless of the strategy used, the {@link WatchdogTimeoutException} thrown by {@link WatchdogLauncher} has its own stack trace.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class AbortStrategy {
+    
+    private static final AbortStrategy FULL_STACK = new AbortStrategy(1);
+    private static final AbortStrategy STACKLESS = new AbortStrategy(0);
+    
+    private static final CodeInterruptedException SHARED_EXCEPTION = new CodeInterruptedException(
+            "Stack trace disabled by abort strategy", false);
+    
+    private final int sampleInterval; // 0 means never sample, 1 means always sample
+    private final AtomicLong abortCounter;
+
+    private AbortStrategy(int sampleInterval) {
+        this.sampleInterval = sampleInterval;
+        this.abortCounter = new AtomicLong();
+    }
+
+    /**
+     * Get a strategy that creates a new exception with a full stack trace on every abort.
+     * @return full stack strategy
+     */
+    public static AbortStrategy fullStack() {
+        return FULL_STACK;
+    }
+
+    /**
+     * Get a strategy that re-uses a single preallocated exception without a stack trace on every abort.
+     * @return stackless strategy
+     */
+    public static AbortStrategy stackless() {
+        return STACKLESS;
+    }
+
+    /**
+     * Get a strategy that creates a new exception with a full stack trace for 1 out of every {@code interval} aborts. The other aborts get
+     * a new exception without a stack trace, with a message noting that it wasn't sampled.
+     * @param interval sampling interval
+     * @return sampled strategy
+     * @throws IllegalArgumentException if {@code interval} is less than {@code 1}
+     */
+    public static AbortStrategy sampled(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return interval == 1 ? FULL_STACK : new AbortStrategy(interval);
+    }
+
+    CodeInterruptedException createException() {
+        switch (sampleInterval) {
+            case 0:
+                return SHARED_EXCEPTION;
+            case 1:
+                return new CodeInterruptedException();
+            default:
+                if (abortCounter.getAndIncrement() % sampleInterval == 0L) {
+                    return new CodeInterruptedException();
+                }
+                return new CodeInterruptedException("Stack trace not sampled (1 in " + sampleInterval + " aborts sampled)", true);
+        }
+    }
+}
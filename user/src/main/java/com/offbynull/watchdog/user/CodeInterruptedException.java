@@ -22,4 +22,12 @@ package com.offbynull.watchdog.user;
  */
 public final class CodeInterruptedException extends RuntimeException {
     static final long serialVersionUID = 0L;
+
+    CodeInterruptedException() {
+    }
+
+    // Creates an exception without a stack trace. Suppression is disabled if the instance is going to be shared between threads.
+    CodeInterruptedException(String message, boolean enableSuppression) {
+        super(message, null, enableSuppression, false);
+    }
 }
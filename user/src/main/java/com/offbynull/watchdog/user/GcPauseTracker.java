@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tracks the total amount of time the JVM has spent in stop-the-world GC pauses.
+//
+// Collection times are polled from the GC beans rather than pushed via GC notifications. Notifications get delivered asynchronously (on
+// a separate notification thread), so a timer firing right after a long pause could easily see the pause before its notification shows
+// up. Polled collection times are updated by the time the pause ends.
+//
+// Beans for concurrent collection cycles (e.g. "ZGC Cycles", "Shenandoah Cycles", "G1 Concurrent GC", "ConcurrentMarkSweep") report
+// time spent running alongside the application rather than pausing it, so they're excluded.
+final class GcPauseTracker {
+    private static final List<GarbageCollectorMXBean> PAUSING_BEANS;
+    static {
+        List<GarbageCollectorMXBean> beans = new ArrayList<>();
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = bean.getName();
+            if (name.endsWith("Cycles") || name.contains("Concurrent")) {
+                continue;
+            }
+            beans.add(bean);
+        }
+        PAUSING_BEANS = Collections.unmodifiableList(beans);
+    }
+
+    private GcPauseTracker() {
+        // do nothing
+    }
+
+    static long totalPauseTime() { // nanos
+        long total = 0L;
+        for (GarbageCollectorMXBean bean : PAUSING_BEANS) {
+            long time = bean.getCollectionTime();
+            if (time > 0L) { // -1 if undefined
+                total += time;
+            }
+        }
+        return TimeUnit.MILLISECONDS.toNanos(total);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * High-precision clock. Time is based on {@link System#nanoTime() }, same as the system clock, but tasks are scheduled on a dedicated
+ * timer thread that parks until shortly before the next task is due and then busy-spins the rest of the way.
+ * <p>
+ * The system clock's timer thread wakes up via a timed wait, which typically overshoots by tens to hundreds of microseconds (depending on
+ * the OS), and goes idle after a second of inactivity (such that the next watchdog pays to restart it). This clock's timer thread stays
+ * alive until the clock is closed and spins through the last stretch before each trigger, so triggers land within a few microseconds of
+ * their deadline. The cost is that the timer thread burns a CPU core for up to the spin threshold before each trigger -- with a steady
+ * stream of short deadlines, that may be a core's worth of CPU.
+ * <p>
+ * Example usage...
+ * <code>
+ * WatchdogLauncher.setClock(new PrecisionWatchdogClock());
+ * WatchdogLauncher.watch(500L, TimeUnit.MICROSECONDS, wd -&gt; priceQuote(wd));
+ * </code>
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class PrecisionWatchdogClock implements WatchdogClock, AutoCloseable {
+
+    private static final long DEFAULT_SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private final long spinThreshold;
+    private final PriorityBlockingQueue<ScheduledTask> tasks;
+    private final AtomicLong sequence;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a {@link PrecisionWatchdogClock} object with a spin threshold of 100 microseconds.
+     */
+    public PrecisionWatchdogClock() {
+        this(DEFAULT_SPIN_THRESHOLD, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructs a {@link PrecisionWatchdogClock} object.
+     * @param spinThreshold how long before a task is due the timer thread stops parking and starts spinning
+     * @param unit time unit of {@code spinThreshold}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code spinThreshold} is negative
+     */
+    public PrecisionWatchdogClock(long spinThreshold, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+        if (spinThreshold < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.spinThreshold = unit.toNanos(spinThreshold);
+        this.tasks = new PriorityBlockingQueue<>();
+        this.sequence = new AtomicLong();
+
+        this.thread = new Thread(this::runLoop);
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY);
+        this.thread.setName(PrecisionWatchdogClock.class.getSimpleName() + " timer thread");
+        this.thread.start();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException if this clock has been closed
+     */
+    @Override
+    public void schedule(Runnable task, long delay) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (closed) {
+            throw new IllegalStateException("Clock closed");
+        }
+
+        ScheduledTask scheduledTask = new ScheduledTask(System.nanoTime() + delay, sequence.getAndIncrement(), task);
+        tasks.add(scheduledTask);
+        if (tasks.peek() == scheduledTask) { // new earliest task -- wake the timer thread so it doesn't oversleep
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the timer thread. Tasks that haven't run yet never will -- watchdogs that are still running on this clock won't trigger (unless
+     * triggered early through {@link WatchdogRegistry}), so only close once nothing is running on this clock.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void runLoop() {
+        while (!closed) {
+            ScheduledTask next = tasks.peek();
+            if (next == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long remaining = next.time() - System.nanoTime();
+            if (remaining > spinThreshold) {
+                LockSupport.parkNanos(this, remaining - spinThreshold);
+                continue;
+            }
+            if (remaining > 0L) {
+                Thread.onSpinWait(); // keep re-peeking while spinning, an earlier task may have been added
+                continue;
+            }
+
+            ScheduledTask due = tasks.poll(); // head may have changed since peek, but if it did it's due even earlier
+            try {
+                due.task().run();
+            } catch (RuntimeException re) {
+                // can't do anything here -- swallow exception so we can keep processing
+            }
+        }
+    }
+}
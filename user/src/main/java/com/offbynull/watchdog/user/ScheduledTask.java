@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+// Task scheduled on a clock, ordered by due time and then by scheduling order.
+final class ScheduledTask implements Comparable<ScheduledTask> {
+    private final long time;
+    private final long sequence;
+    private final Runnable task;
+
+    ScheduledTask(long time, long sequence, Runnable task) {
+        this.time = time;
+        this.sequence = sequence;
+        this.task = task;
+    }
+
+    long time() {
+        return time;
+    }
+
+    Runnable task() {
+        return task;
+    }
+
+    @Override
+    public int compareTo(ScheduledTask o) {
+        int ret = Long.compare(time - o.time, 0L); // overflow-safe, same as how System.nanoTime() values are compared
+        if (ret == 0) {
+            ret = Long.compare(sequence, o.sequence);
+        }
+        return ret;
+    }
+}
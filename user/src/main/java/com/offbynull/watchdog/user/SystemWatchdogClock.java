@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+final class SystemWatchdogClock implements WatchdogClock {
+    static final SystemWatchdogClock INSTANCE = new SystemWatchdogClock();
+
+    // Internal timer for unblocking IO
+    private static final ScheduledThreadPoolExecutor TIMER;
+    static {
+        ThreadFactory threadFactory = (r) -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName(Watchdog.class.getSimpleName() + " timer thread");
+            return t;
+        };
+        TIMER = new ScheduledThreadPoolExecutor(1, threadFactory);
+        //TIMER.setRemoveOnCancelPolicy(true);
+        TIMER.setKeepAliveTime(1L, TimeUnit.SECONDS);
+        TIMER.allowCoreThreadTimeOut(true);
+    }
+
+    private SystemWatchdogClock() {
+        // do nothing
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void schedule(Runnable task, long delay) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+
+        TIMER.schedule(task, delay, TimeUnit.NANOSECONDS);
+    }
+}
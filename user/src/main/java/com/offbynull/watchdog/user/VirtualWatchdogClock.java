@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual clock for testing. Time only moves forward when told to, and scheduled tasks (e.g. watchdog triggers) run on whichever thread
+ * moves time forward past their due time.
+ * <p>
+ * Watched code can move time forward itself to deterministically simulate work that takes a while...
+ * <code>
+ * VirtualWatchdogClock clock = new VirtualWatchdogClock();
+ * WatchdogLauncher.setClock(clock);
+ * try {
+ *     WatchdogLauncher.watch(100L, wd -&gt; {
+ *         clock.advance(150L); // watchdog triggers right here
+ *         slowOperation(wd);   // throws CodeInterruptedException at its first check
+ *     });
+ * } finally {
+ *     WatchdogLauncher.setClock(WatchdogClock.system());
+ * }
+ * </code>
+ * Alternatively, if auto-advance is enabled, time jumps forward to whatever gets scheduled the instant it gets scheduled. Every watchdog
+ * launched on an auto-advancing clock triggers right away, which is useful for testing how code behaves on timeout without having to wait
+ * for (or simulate) anything.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class VirtualWatchdogClock implements WatchdogClock {
+
+    private final Object lock;
+    private final PriorityQueue<ScheduledTask> tasks;
+    private volatile long time;
+    private long sequence;
+    private boolean autoAdvance;
+
+    /**
+     * Constructs a {@link VirtualWatchdogClock} object. Time starts at {@code 0} and auto-advance is disabled.
+     */
+    public VirtualWatchdogClock() {
+        this.lock = new Object();
+        this.tasks = new PriorityQueue<>();
+    }
+
+    @Override
+    public long nanoTime() {
+        return time;
+    }
+
+    @Override
+    public void schedule(Runnable task, long delay) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+
+        boolean runNow;
+        synchronized (lock) {
+            tasks.add(new ScheduledTask(time + Math.max(0L, delay), sequence++, task));
+            runNow = autoAdvance;
+        }
+
+        if (runNow) {
+            runDue(Long.MAX_VALUE, true);
+        }
+    }
+
+    /**
+     * Move time forward, running any scheduled tasks that come due along the way (in the order they come due). Tasks run on the calling
+     * thread.
+     * @param amount amount of time (in milliseconds) to move forward by
+     * @throws IllegalArgumentException if {@code amount} is negative
+     */
+    public void advance(long amount) {
+        if (amount < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        long target;
+        synchronized (lock) {
+            target = time + TimeUnit.MILLISECONDS.toNanos(amount);
+        }
+        runDue(target, false);
+    }
+
+    /**
+     * Set whether time should jump forward to scheduled tasks as soon as they're scheduled. Tasks run on the scheduling thread. Enabling
+     * also runs any tasks that are already scheduled.
+     * @param autoAdvance {@code true} to enable auto-advance, {@code false} to disable it
+     */
+    public void setAutoAdvance(boolean autoAdvance) {
+        synchronized (lock) {
+            this.autoAdvance = autoAdvance;
+        }
+
+        if (autoAdvance) {
+            runDue(Long.MAX_VALUE, true);
+        }
+    }
+
+    /**
+     * Get the number of scheduled tasks that haven't run yet.
+     * @return pending task count
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return tasks.size();
+        }
+    }
+
+    private void runDue(long target, boolean toLastTask) {
+        while (true) {
+            List<Runnable> due = new ArrayList<>();
+            synchronized (lock) {
+                ScheduledTask next = tasks.peek();
+                if (next == null || next.time() - target > 0L) {
+                    if (!toLastTask && target - time > 0L) {
+                        time = target;
+                    }
+                    return;
+                }
+
+                // Move time up to the task and pull out everything due at that same instant
+                if (next.time() - time > 0L) {
+                    time = next.time();
+                }
+                while (!tasks.isEmpty() && tasks.peek().time() - time <= 0L) {
+                    due.add(tasks.poll().task());
+                }
+            }
+
+            for (Runnable task : due) { // run outside of the lock -- tasks may schedule more tasks
+                task.run();
+            }
+        }
+    }
+}
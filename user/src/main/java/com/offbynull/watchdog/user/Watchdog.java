@@ -20,9 +20,9 @@ import java.io.Closeable;
 import java.util.ArrayList;
 import static java.util.Collections.synchronizedList;
 import java.util.List;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
 
 
 /**
@@ -41,58 +41,328 @@ public final class Watchdog {
                                                                 // compiler may try to optimize by loading NULL directly onto the operand
                                                                 // stack instead of actually loading the field?
 
-    // Internal timer for unblocking IO
-    private static final ScheduledThreadPoolExecutor TIMER;
-    static {
-        ThreadFactory threadFactory = (r) -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName(Watchdog.class.getSimpleName() + " timer thread");
-            return t;
-        };
-        TIMER = new ScheduledThreadPoolExecutor(1, threadFactory);
-        //TIMER.setRemoveOnCancelPolicy(true);
-        TIMER.setKeepAliveTime(1L, TimeUnit.SECONDS);
-        TIMER.allowCoreThreadTimeOut(true);
-    }
+    // Clock given to newly created watchdogs -- tells time and schedules triggers (system clock uses internal timer for unblocking IO)
+    private static volatile WatchdogClock defaultClock = WatchdogClock.system();
+
+    // Abort strategy given to newly created watchdogs
+    private static volatile AbortStrategy defaultAbortStrategy = AbortStrategy.fullStack();
+
+    // Whether newly created watchdogs extend their deadlines by stop-the-world GC pause time
+    private static volatile boolean defaultGcPauseCompensation = false;
+
+    // Source of total stop-the-world GC pause time (nanos) given to newly created watchdogs -- swappable so tests can fake pauses
+    private static volatile LongSupplier defaultGcPauseSource = GcPauseTracker::totalPauseTime;
     
     // Class fields
-    private volatile boolean timeExceededFlag = false;          // touched by both timer thread and main thread
+    private volatile boolean timeExceededFlag = false;          // touched by main thread and triggering thread (timer/registry)
+    private volatile boolean slowPathFlag;                      // set whenever hitCheck() has work to do, so the fast path is 1 read
+    private final boolean slowPathPinned;                       // if true, slowPathFlag never gets cleared, see hitCheck()
+    private volatile boolean finishedFlag = false;              // set once the launch is over, see shutdown()
     private int uninterruptibleSectionCounter = 0;              // touched by only main thread
     private boolean killProcessedFlag = false;                  // touched by only main thread
 
     private final List<BlockedInterrupter> blockedInterrupters; // touched by both timer thread and main thread (sync implementation used)
+
+    private final AbortStrategy abortStrategy;
+    private final WatchdogClock clock;
+
+    // Identification fields -- read by other threads through the registry
+    private final long id;
+    private final String key;                                   // null if launched without a key
+    private volatile Thread thread;                             // null while detached
+    private final long startTime;                               // clock based
+    private volatile long deadline;                             // clock based, only moves if extended by GC pause compensation
+    private final long startAllocatedBytes;                     // -1 if not tracked (see WatchdogHeapGuard) or detachable
+
+    // Detach fields -- only detachable watchdogs can move between threads, see attach()/detach()
+    private final boolean detachable;
+    private boolean closed;                                     // guarded by this
+
+    // Inherited fields -- launches on a thread with an inherited watchdog bound nest under it, see createInherited()/nestUnder()
+    private final boolean inherited;
+    private Watchdog enclosing;                                 // touched by only main thread, inherited watchdog this is nested under
+    private volatile Watchdog nested;                           // launch currently nested under this inherited watchdog, if any
+
+    // Shadow fields -- shadow watchdogs never abort the watched code, they only note where it was once the deadline elapsed
+    private final boolean shadow;
+    private StackTraceElement[] shadowStack;                    // touched by only main thread, null if not sampled
+
+    // Inline check fields -- if inlineCheckInterval is 0, nothing reads the clock on the main thread and these are unused
+    private final int inlineCheckInterval;
+    private int inlineCheckCountdown;                           // touched by only main thread
+    private final boolean timerless;                            // if true, no timer thread sets timeExceededFlag -- inline checks do
+    private final long timeSlice;                               // nanos, 0 if not time-sliced
+    private long timeSliceStart;                                // touched by only main thread, clock based
+
+    // Heartbeat fields -- if heartbeatInterval is 0, no heartbeat and these are unused
+    private final long heartbeatInterval;                       // nanos
+    private volatile long lastRenewTime;                        // clock based, written by main thread and read by timer thread
+    private long heartbeatExtendedRenewTime;                    // touched by only timer thread, renewal heartbeatExtension applies to
+    private long heartbeatExtension;                            // touched by only timer thread, GC pause time (nanos) added to interval
+    private long heartbeatPauseCompensated;                     // touched by only timer thread, GC pause time (nanos) compensated so far
+
+    // Throttle fields -- if throttlePauseTime is 0, not throttled and these are unused
+    private final long throttleRunTime;                         // nanos
+    private final long throttlePauseTime;                       // nanos
+    private volatile boolean throttlePauseDue;                  // set by timer thread, cleared by main thread
+
+    // Item fields -- if itemGeneration is 0, beginItem() was never invoked and these are unused
+    private volatile long itemGeneration;                       // written by only main thread, odd while an item is running
+    private volatile long itemDeadline;                         // written by only main thread, clock based
+    private volatile long itemExceededGeneration = -1L;         // written by only timer thread, last item generation that ran out
+    private boolean itemKillProcessedFlag;                      // touched by only main thread
+    private volatile boolean itemTimerArmed;                    // written while synchronized on this
+    private volatile long itemTimerFireTime;                    // written while synchronized on this, clock based
+    private long itemExtendedGeneration;                        // guarded by this, item generation itemExtension applies to
+    private long itemExtension;                                 // guarded by this, GC pause time (nanos) added to item's budget
+    private long itemPauseCompensated;                          // guarded by this, GC pause time (nanos) compensated so far
+
+    // Anytime fields -- best result published so far by the watched code
+    private Object partialResult;                               // touched by only main thread
+    private boolean partialResultPublished;                     // touched by only main thread
+
+    // Statistics fields -- if statistics is false, nothing counts checks and these stay 0 (peak depth is always tracked, it's off the fast
+    // path)
+    private final boolean statistics;
+    private long branchCheckCount;                              // touched by only main thread
+    private long methodEntryCheckCount;                         // touched by only main thread
+    private int peakUninterruptibleSectionCounter;              // touched by only main thread
     
-    static Watchdog create(long delay) {
+    static Watchdog create(String key, long delay, TimeUnit unit) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
+
+        long delayNanos = unit.toNanos(delay);
+        Watchdog watchdog = new Watchdog(key, delayNanos, Mode.TIMED, 0, 0L, 0L, 0L, 0L, defaultClock, defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    static Watchdog createWithStatistics(long delay) {
         if (delay < 0L) {
             throw new IllegalArgumentException();
         }
 
-        if (TLS.get() != null) {
+        Watchdog enclosing = enclosing();
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.STATISTICS, 0, 0L, 0L, 0L, 0L, defaultClock, defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    // delay of -1 means there's no hard cap -- only the heartbeat can trigger the watchdog
+    static Watchdog createHeartbeat(long interval, long delay) {
+        if (interval <= 0L || delay < -1L) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
+
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        long delayNanos = delay == -1L ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.TIMED, 0, 0L, intervalNanos, 0L, 0L, defaultClock, defaultAbortStrategy);
+        if (delay != -1L) {
+            watchdog.clock.schedule(watchdog::expire, delayNanos);
+        }
+        watchdog.clock.schedule(watchdog::checkHeartbeat, intervalNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    static Watchdog createTimerless(long delay, int checkInterval) {
+        if (delay < 0L || checkInterval <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.TIMERLESS, checkInterval, 0L, 0L, 0L, 0L, defaultClock,
+                defaultAbortStrategy);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    static Watchdog createTimeSliced(long delay, long timeSlice, int checkInterval) {
+        if (delay < 0L || timeSlice <= 0L || checkInterval <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        long timeSliceNanos = TimeUnit.MILLISECONDS.toNanos(timeSlice);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.TIMED, checkInterval, timeSliceNanos, 0L, 0L, 0L, defaultClock,
+                defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    static Watchdog createThrottled(long delay, long softDelay, long runTime, long pauseTime) {
+        if (delay < 0L || softDelay < 0L || runTime <= 0L || pauseTime <= 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        long runTimeNanos = TimeUnit.MILLISECONDS.toNanos(runTime);
+        long pauseTimeNanos = TimeUnit.MILLISECONDS.toNanos(pauseTime);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.TIMED, 0, 0L, 0L, runTimeNanos, pauseTimeNanos, defaultClock,
+                defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+        watchdog.clock.schedule(watchdog::throttle, TimeUnit.MILLISECONDS.toNanos(softDelay));
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
+        return watchdog;
+    }
+
+    static Watchdog createDetached(long delay) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.DETACHED, 0, 0L, 0L, 0L, 0L, defaultClock, defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        WatchdogRegistry.register(watchdog);
+        return watchdog;
+    }
+
+    // Created on behalf of a parent process, see WatchdogProcessLauncher.inheritDeadline(). Stays bound to the current thread for good,
+    // and launches on the current thread nest under it rather than failing.
+    static Watchdog createInherited(long delay) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        if (current() != null) {
             throw new IllegalStateException("Watchdog already active");
         }
 
-        Thread thread = Thread.currentThread();
-        Watchdog watchdog = new Watchdog();
-        TIMER.schedule(() -> {
-            watchdog.timeExceededFlag = true;
-            synchronized (watchdog.blockedInterrupters) {
-                for (BlockedInterrupter blockedInterrupter : watchdog.blockedInterrupters) {
-                    try {
-                        blockedInterrupter.interrupt(thread);
-                    } catch (Exception e) {
-                        // can't do anything here -- swallow exception so we can keep processing
-                    }
-                }
-            }
-        }, delay, TimeUnit.MILLISECONDS);
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(null, delayNanos, Mode.INHERITED, 0, 0L, 0L, 0L, 0L, defaultClock, defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        return watchdog;
+    }
+
+    static Watchdog createShadow(String key, long delay) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog enclosing = enclosing();
 
-        TLS.set(watchdog);
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+        Watchdog watchdog = new Watchdog(key, delayNanos, Mode.SHADOW, 0, 0L, 0L, 0L, 0L, defaultClock, defaultAbortStrategy);
+        watchdog.clock.schedule(watchdog::expire, delayNanos);
+
+        bind(watchdog);
+        WatchdogRegistry.register(watchdog);
+        watchdog.nestUnder(enclosing);
         return watchdog;
     }
 
+    // GC pause compensation fields -- if gcPauseBaseline is -1, not compensated and these are unused. Each timer (deadline, heartbeat,
+    // item) tracks how much pause time it's been compensated for separately, see gcPauseTime().
+    private final LongSupplier gcPauseSource;
+    private final long gcPauseBaseline;                         // GC pause time (nanos) when created
+    private long gcPauseCompensated;                            // touched by only timer thread, GC pause time (nanos) added to deadline
+
     private Watchdog() {
+        this.slowPathFlag = false;
+        this.slowPathPinned = false;
         this.blockedInterrupters = synchronizedList(new ArrayList<>());
+        this.abortStrategy = AbortStrategy.fullStack();
+        this.clock = WatchdogClock.system();
+        this.id = 0L;
+        this.key = null;
+        this.thread = null;
+        this.startTime = 0L;
+        this.deadline = 0L;
+        this.startAllocatedBytes = -1L;
+        this.inlineCheckInterval = 0;
+        this.inlineCheckCountdown = 0;
+        this.timerless = false;
+        this.timeSlice = 0L;
+        this.timeSliceStart = 0L;
+        this.heartbeatInterval = 0L;
+        this.lastRenewTime = 0L;
+        this.throttleRunTime = 0L;
+        this.throttlePauseTime = 0L;
+        this.detachable = false;
+        this.inherited = false;
+        this.shadow = false;
+        this.gcPauseSource = null;
+        this.gcPauseBaseline = -1L;
+        this.statistics = false;
+    }
+
+    private Watchdog(String key, long delayNanos, Mode mode, int inlineCheckInterval, long timeSlice, long heartbeatInterval,
+            long throttleRunTime, long throttlePauseTime, WatchdogClock clock, AbortStrategy abortStrategy) {
+        boolean timerless = mode == Mode.TIMERLESS;
+        boolean detachable = mode == Mode.DETACHED;
+
+        this.blockedInterrupters = synchronizedList(new ArrayList<>());
+        this.abortStrategy = abortStrategy;
+        this.clock = clock;
+        this.id = WatchdogRegistry.nextId();
+        this.key = key;
+        this.thread = detachable ? null : Thread.currentThread();
+        this.startTime = clock.nanoTime();
+        this.deadline = startTime + delayNanos;
+        this.startAllocatedBytes = !detachable && WatchdogHeapGuard.isTrackingAllocations()
+                ? WatchdogHeapGuard.allocatedBytes(thread)
+                : -1L;
+        this.inlineCheckInterval = inlineCheckInterval;
+        this.inlineCheckCountdown = inlineCheckInterval;
+        this.timerless = timerless;
+        this.timeSlice = timeSlice;
+        this.timeSliceStart = startTime;
+        this.heartbeatInterval = heartbeatInterval;
+        this.lastRenewTime = startTime;
+        this.heartbeatExtendedRenewTime = startTime;
+        this.throttleRunTime = throttleRunTime;
+        this.throttlePauseTime = throttlePauseTime;
+        this.detachable = detachable;
+        this.inherited = mode == Mode.INHERITED;
+        this.shadow = mode == Mode.SHADOW;
+        this.gcPauseSource = defaultGcPauseSource;
+        this.gcPauseBaseline = defaultGcPauseCompensation && !timerless ? gcPauseSource.getAsLong() : -1L;
+        this.statistics = mode == Mode.STATISTICS;
+
+        // Inline checks and statistics have work to do on every hit -- rather than have every watchdog's fast path check whether they're
+        // enabled, watchdogs that use them always take the slow path.
+        this.slowPathPinned = inlineCheckInterval != 0 || statistics;
+        this.slowPathFlag = slowPathPinned;
     }
 
     /**
@@ -100,7 +370,16 @@ public final class Watchdog {
      * @return n/a
      * @throws IllegalStateException n/a
      */
-    public static Watchdog get() { // Get the watchdog instance from threadlocal storage (set in obj constructor)
+    public static Watchdog get() { // Get the watchdog instance from the thread's field or threadlocal storage (set in obj constructor)
+        Thread thread = Thread.currentThread();
+        if (thread instanceof WatchdogThread) {
+            Watchdog ret = ((WatchdogThread) thread).getWatchdog();
+            if (ret == null) {
+                throw new IllegalStateException("Bad state -- watchdog does not exist in thread");
+            }
+            return ret;
+        }
+
         Watchdog ret = TLS.get();
         if (ret == null) {
             TLS.remove(); // you need to remove at this point cause memory has been allocated by initial call to threadLocal.get()
@@ -116,14 +395,24 @@ public final class Watchdog {
      * Do not use -- for internal use only.
      */
     public void onBranch() {
-        hitCheck();
+        if (slowPathFlag) {
+            if (statistics) {
+                branchCheckCount++;
+            }
+            hitCheck();
+        }
     }
 
     /**
      * Do not use -- for internal use only.
      */
     public void onMethodEntry() {
-        hitCheck();
+        if (slowPathFlag) {
+            if (statistics) {
+                methodEntryCheckCount++;
+            }
+            hitCheck();
+        }
     }
     
     /**
@@ -148,6 +437,9 @@ public final class Watchdog {
      */
     public void enterUninterruptibleSection() {
         uninterruptibleSectionCounter++;
+        if (uninterruptibleSectionCounter > peakUninterruptibleSectionCounter) {
+            peakUninterruptibleSectionCounter = uninterruptibleSectionCounter;
+        }
     }
     
     /**
@@ -159,7 +451,9 @@ public final class Watchdog {
             throw new IllegalStateException();
         }
         uninterruptibleSectionCounter--;
-        hitCheck();
+        if (slowPathFlag) {
+            hitCheck();
+        }
     }
 
     /**
@@ -188,21 +482,273 @@ public final class Watchdog {
         }
     }
     
+    // Invoked by the timer thread once the deadline elapses. If GC pause compensation is on and there were stop-the-world GC pauses since
+    // the watchdog was created (or since the last time this was invoked), the deadline gets pushed back by that much and this is scheduled
+    // to be invoked again. Otherwise, triggers.
+    private void expire() {
+        if (finishedFlag) {
+            return;
+        }
+
+        if (!timeExceededFlag) {
+            long paused = gcPauseTime();
+            long extension = paused - gcPauseCompensated;
+            if (extension > 0L) {
+                gcPauseCompensated = paused;
+                deadline += extension; // only ever written by the timer thread
+                clock.schedule(this::expire, Math.max(0L, deadline - clock.nanoTime()));
+                return;
+            }
+        }
+
+        trigger();
+    }
+
+    // Invoked by the timer thread once the heartbeat interval elapses. If the watched code renewed since, this is scheduled to be invoked
+    // again once the interval elapses from the last renewal. Otherwise, GC pauses are compensated for the same way as in expire() -- the
+    // interval gets pushed back by however much pause time this hasn't seen yet. Pause time is only looked at once the interval runs out,
+    // so a pause from just before a renewal may get credited to the interval after it (erring on the side of not triggering).
+    private void checkHeartbeat() {
+        if (timeExceededFlag || finishedFlag) {
+            return;
+        }
+
+        long renewTime = lastRenewTime;
+        if (renewTime != heartbeatExtendedRenewTime) { // renewed since the interval was last pushed back -- start the new interval fresh
+            heartbeatExtendedRenewTime = renewTime;
+            heartbeatExtension = 0L;
+        }
+
+        long remaining = renewTime + heartbeatInterval + heartbeatExtension - clock.nanoTime();
+        if (remaining <= 0L) {
+            long paused = gcPauseTime();
+            long extension = paused - heartbeatPauseCompensated;
+            heartbeatPauseCompensated = paused;
+            heartbeatExtension += extension;
+            remaining += extension;
+        }
+
+        if (remaining > 0L) {
+            clock.schedule(this::checkHeartbeat, remaining);
+            return;
+        }
+
+        trigger();
+    }
+
+    // Arms the item timer such that it fires no later than the current item's deadline. Only invoked if the item timer isn't armed or
+    // is armed to fire too late (e.g. the current item's budget is smaller than the last one's), so typically once per launch.
+    private synchronized void armItemTimer() {
+        long deadline = itemDeadline;
+        if (itemTimerArmed && itemTimerFireTime - deadline <= 0L) {
+            return;
+        }
+        itemTimerArmed = true;
+        itemTimerFireTime = deadline;
+        clock.schedule(() -> checkItem(deadline), Math.max(0L, deadline - clock.nanoTime()));
+    }
+
+    // Invoked by the timer thread once the item timer fires. The same timer is reused for every item -- if the current item still has
+    // budget left (e.g. the item it was armed for finished and a new one began), it's scheduled to be invoked again at the current
+    // item's deadline. Otherwise, GC pauses are compensated for the same way as in expire() -- the item's deadline gets pushed back by
+    // however much pause time this hasn't seen yet. If there's nothing to compensate for, the item is flagged so that the main thread
+    // aborts it on its next hit.
+    private void checkItem(long fireTime) {
+        long generation;
+        synchronized (this) {
+            if (!itemTimerArmed || itemTimerFireTime != fireTime || timeExceededFlag || finishedFlag) { // superseded, triggered, or over
+                return;
+            }
+
+            generation = itemGeneration;
+            if (generation != itemExtendedGeneration) { // new item since the deadline was last pushed back -- start it fresh
+                itemExtendedGeneration = generation;
+                itemExtension = 0L;
+            }
+
+            long remaining = itemDeadline + itemExtension - clock.nanoTime();
+            if ((generation & 1L) != 0L && remaining <= 0L) {
+                long paused = gcPauseTime();
+                long extension = paused - itemPauseCompensated;
+                itemPauseCompensated = paused;
+                itemExtension += extension;
+                remaining += extension;
+            }
+
+            long deadline = itemDeadline + itemExtension;
+            if ((generation & 1L) == 0L) { // between items
+                itemTimerArmed = false;
+            } else if (remaining > 0L) {
+                itemTimerFireTime = deadline;
+                clock.schedule(() -> checkItem(deadline), remaining);
+            } else {
+                itemExceededGeneration = generation;
+                slowPathFlag = true;
+                itemTimerArmed = false;
+            }
+        }
+
+        // If a new item began while the above was running, beginItem() may have seen the old timer state and not armed -- re-check.
+        if (itemGeneration != generation) {
+            armItemTimer();
+        }
+    }
+
+    // Stop-the-world GC pause time (nanos) since the watchdog was created, or 0 if not compensated. Only invoked by the timer thread.
+    private long gcPauseTime() {
+        return gcPauseBaseline == -1L ? 0L : gcPauseSource.getAsLong() - gcPauseBaseline;
+    }
+
+    // Flags the watchdog and invokes the blocked interrupters. Invoked by the timer thread once the deadline elapses (via expire()), but
+    // may also be invoked early by other threads (e.g. through the registry). Only the first invocation has any effect. If the watchdog is
+    // detached, there's no thread to unblock, so the blocked interrupters aren't invoked. Once the launch is over (see shutdown()), this
+    // has no effect -- the thread may have moved on to other work by then.
+    void trigger() {
+        synchronized (blockedInterrupters) {
+            if (timeExceededFlag || finishedFlag) {
+                return;
+            }
+            timeExceededFlag = true;
+            slowPathFlag = true;
+            Watchdog nested = this.nested; // must be read after the flag is set, see nestUnder()
+            if (nested != null) { // whatever launch is nested under this inherited watchdog is out of time as well
+                nested.trigger();
+            }
+            Thread thread = this.thread;
+            if (thread == null || shadow) { // detached (nothing to unblock) or shadow (must not disturb the watched code)
+                return;
+            }
+            if (throttlePauseTime != 0L) {
+                LockSupport.unpark(thread); // in case the main thread is in the middle of a throttle pause
+            }
+            for (BlockedInterrupter blockedInterrupter : blockedInterrupters) {
+                try {
+                    blockedInterrupter.interrupt(thread);
+                } catch (Exception e) {
+                    // can't do anything here -- swallow exception so we can keep processing
+                }
+            }
+        }
+    }
+
+    long id() {
+        return id;
+    }
+
+    String key() {
+        return key;
+    }
+
+    Thread thread() {
+        return thread;
+    }
+
+    long startTime() {
+        return startTime;
+    }
+
+    long deadline() {
+        return deadline;
+    }
+
+    StackTraceElement[] shadowStack() {
+        return shadowStack;
+    }
+
+    boolean isDetachable() {
+        return detachable;
+    }
+
+    WatchdogClock clock() {
+        return clock;
+    }
+
+    long startAllocatedBytes() {
+        return startAllocatedBytes;
+    }
+
+    long branchCheckCount() {
+        return branchCheckCount;
+    }
+
+    long methodEntryCheckCount() {
+        return methodEntryCheckCount;
+    }
+
+    int peakUninterruptibleSectionCounter() {
+        return peakUninterruptibleSectionCounter;
+    }
+
+    // Unlike isTimeExceeded(), doesn't check the clock in timerless mode, so it's safe to call from threads other than the main thread
+    boolean isTriggered() {
+        return timeExceededFlag;
+    }
+
+    // Whether blocked interrupters get invoked once triggered -- they don't for shadow watchdogs or while detached, see trigger()
+    boolean isInterruptingBlocked() {
+        return thread != null && !shadow;
+    }
+
+    // Whether triggering aborts the watched code, so it unwinds and finishes soon after. Shadow watchdogs never abort, detachable ones may
+    // not be attached to anything when triggered, and inherited ones stay active for as long as their thread does.
+    boolean isSheddable() {
+        return !shadow && !detachable && !inherited;
+    }
+
+    // Whether the last item was aborted -- the launcher checks this to tell an item abort that escaped the watched code apart from a
+    // CodeInterruptedException the watched code threw itself
+    boolean isItemAborted() {
+        return itemKillProcessedFlag;
+    }
+
     boolean isTimeExceeded() {
+        if (timerless && !timeExceededFlag && clock.nanoTime() - deadline >= 0L) {
+            timeExceededFlag = true;
+            slowPathFlag = true;
+        }
         return timeExceededFlag;
     }
 
+    // Only invoked once the slow path flag has been read as set -- the fast path (nothing to do) is that single read, done by the caller.
+    // If the slow path is pinned (inline checks or statistics), this gets invoked on every hit and may find there's nothing to do.
     private void hitCheck() {
-        // Has time exceeded??? If not, return
-        if (!timeExceededFlag) {
+        // Running in timerless or time-sliced mode? Read the clock every inlineCheckInterval hits -- reading the clock on every hit would
+        // be too expensive for tight loops.
+        if (inlineCheckInterval != 0 && --inlineCheckCountdown == 0) {
+            inlineCheck();
+        }
+
+        // Shadow mode? Never throw, just take a note of where the watched code was once the deadline elapsed (if this launch key is due a
+        // stack sample). Clearing the slow path flag is safe because nothing else will set it again -- trigger() only goes through once --
+        // and shadow watchdogs never pin the slow path.
+        if (shadow) {
+            slowPathFlag = false;
+            if (timeExceededFlag && WatchdogShadowRecorder.shouldSampleStack(key)) {
+                shadowStack = WatchdogShadowRecorder.captureStack();
+            }
             return;
         }
 
         // Has "killing" been disabled by the user? This is typically done during portions of code that should not be interrupted -- for
-        // example, cleaning up in finally blocks.
+        // example, cleaning up in finally blocks. Throttle pauses are held off as well -- the slow path flag stays set, so the pause
+        // happens on the first hit after the section exits.
         if (uninterruptibleSectionCounter > 0) {
             return;
         }
+
+        // Not timed out, so we must be here because the current item ran out of budget or a throttle pause is due. Items are only
+        // aborted once -- subsequent hits may be from the item's cleanup regions (finally blocks).
+        if (!timeExceededFlag) {
+            if (isItemExceeded()) {
+                itemKillProcessedFlag = true;
+                resetSlowPath();
+                throw abortStrategy.createException();
+            }
+            if (throttlePauseDue) {
+                throttlePause();
+            }
+            return;
+        }
         
         // Have we already thrown a CodeInterruptedException??? If yes, return -- subsequent hits may be from cleanup regions (finally
         // blocks).
@@ -212,7 +758,72 @@ public final class Watchdog {
         
         // Throw CodeInterruptedException exception
         killProcessedFlag = true;
-        throw new CodeInterruptedException();
+        throw abortStrategy.createException();
+    }
+
+    // Invoked by the timer thread once the soft delay elapses, and then once per duty cycle from there on out. Flags the main thread to
+    // pause on its next hit.
+    private void throttle() {
+        if (timeExceededFlag || finishedFlag) {
+            return;
+        }
+        throttlePauseDue = true;
+        slowPathFlag = true;
+    }
+
+    private void throttlePause() {
+        // The pause itself is always in real time, even if the clock isn't -- it's meant to give up the CPU for a while
+        long pauseDeadline = System.nanoTime() + throttlePauseTime;
+        while (!timeExceededFlag && !Thread.currentThread().isInterrupted()) {
+            long remaining = pauseDeadline - System.nanoTime();
+            if (remaining <= 0L) {
+                break;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+
+        throttlePauseDue = false;
+        resetSlowPath();
+        if (timeExceededFlag) {
+            return;
+        }
+
+        clock.schedule(this::throttle, throttleRunTime);
+    }
+
+    // Clears the slow path flag, then re-checks everything that sets it -- if the timer thread set something in between, its write to
+    // the slow path flag may have been wiped out by ours.
+    private void resetSlowPath() {
+        if (slowPathPinned) {
+            return;
+        }
+
+        slowPathFlag = false;
+        if (timeExceededFlag || throttlePauseDue || isItemExceeded()) {
+            slowPathFlag = true;
+        }
+    }
+
+    private boolean isItemExceeded() {
+        return itemExceededGeneration == itemGeneration && !itemKillProcessedFlag;
+    }
+
+    private void inlineCheck() {
+        inlineCheckCountdown = inlineCheckInterval;
+        long time = clock.nanoTime();
+
+        // Timerless mode? There's no timer thread to set the flag, so set it ourselves.
+        if (timerless && time - deadline >= 0L) {
+            timeExceededFlag = true;
+            slowPathFlag = true;
+        }
+
+        // Time-sliced mode? If this thread has held on to the CPU for longer than its slice, give other threads a chance to run. Yielding
+        // is safe even in uninterruptible sections -- it's only a scheduling hint, nothing gets thrown.
+        if (timeSlice != 0L && time - timeSliceStart >= timeSlice) {
+            Thread.yield();
+            timeSliceStart = clock.nanoTime();
+        }
     }
     
     
@@ -296,9 +907,288 @@ public final class Watchdog {
     
     
     
+    /**
+     * Begin an item with its own budget.
+     * <p>
+     * Code that processes a batch of independent items in a single launch can give each item its own budget, such that an item that runs
+     * out of budget gets aborted (via the same exception as a timeout) without ending the batch...
+     * <code>
+     * for (Record record : records) {
+     *     watchdog.beginItem(100L);
+     *     try {
+     *         process(record);
+     *     } catch (CodeInterruptedException cie) {
+     *         // record took too long -- skip it
+     *     } finally {
+     *         watchdog.endItem();
+     *     }
+     * }
+     * </code>
+     * The launch's own delay still applies to the batch as a whole. If the launch has timed out, this method throws instead of beginning
+     * the item, so a batch that catches item aborts can't keep running past the launch's delay. Invoking this method while an item is
+     * already running ends that item and begins a new one. If an item abort isn't caught and escapes the watched code, the launcher
+     * reports it as a {@link WatchdogTimeoutException}, same as if the launch itself had timed out.
+     * <p>
+     * The first item of a launch schedules a timer task, which then follows subsequent items along as they come and go. Another timer
+     * task only gets scheduled if an item begins with a deadline earlier than the one the timer is set to fire at (e.g. the item's
+     * budget is smaller than the previous item's).
+     * @param budget maximum amount of time (in milliseconds) the item may run for before it's aborted
+     * @throws IllegalArgumentException if {@code budget} is negative
+     * @throws CodeInterruptedException if the launch has timed out
+     */
+    public void beginItem(long budget) {
+        if (budget < 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (timeExceededFlag) {
+            throw abortStrategy.createException();
+        }
+
+        long deadline = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+        long generation = itemGeneration;
+        itemKillProcessedFlag = false;
+        itemDeadline = deadline;
+        itemGeneration = generation + ((generation & 1L) == 0L ? 1L : 2L); // must be written after itemDeadline, see checkItem()
+        if (slowPathFlag) {
+            resetSlowPath(); // previous item may have been aborted
+        }
+
+        if (!itemTimerArmed || deadline - itemTimerFireTime < 0L) {
+            armItemTimer();
+        }
+    }
+
+    /**
+     * End the item began by {@link #beginItem(long) }.
+     * @throws IllegalStateException if no item is running
+     */
+    public void endItem() {
+        long generation = itemGeneration;
+        if ((generation & 1L) == 0L) {
+            throw new IllegalStateException();
+        }
+
+        itemGeneration = generation + 1L;
+        if (slowPathFlag) {
+            resetSlowPath();
+        }
+    }
+    
+    
     
-    // This object is finished with and must not be used again after this is invoked
+    /**
+     * Renew the heartbeat lease.
+     * <p>
+     * If the code was launched with {@link WatchdogLauncher#watchHeartbeat(long, com.offbynull.watchdog.user.WatchdogCallable) } (or one
+     * of its overloads), the watchdog triggers once the heartbeat interval elapses without the watched code invoking this method. Code
+     * that's expected to run indefinitely (e.g. stream consumers) should invoke this each time it makes progress...
+     * <code>
+     * while (true) {
+     *     Message msg = consumer.poll();
+     *     process(msg);
+     *     watchdog.renew();
+     * }
+     * </code>
+     * If the code wasn't launched in heartbeat mode, this method does nothing.
+     */
+    public void renew() {
+        if (heartbeatInterval != 0L) {
+            lastRenewTime = clock.nanoTime();
+        }
+    }
+    
+    
+    
+    /**
+     * Publish the best result computed so far.
+     * <p>
+     * If the code was launched with {@link WatchdogLauncher#watchAnytime(long, com.offbynull.watchdog.user.WatchdogCallable) } and the
+     * watchdog triggers before it finishes, the launcher returns the most recently published result instead of throwing a
+     * {@link WatchdogTimeoutException}. Code that refines an answer over time (e.g. searches and optimizers) should publish each improved
+     * answer as it finds it...
+     * <code>
+     * Solution best = initialSolution();
+     * watchdog.publishResult(best);
+     * while (true) {
+     *     Solution next = improve(best);
+     *     if (next.isBetterThan(best)) {
+     *         best = next;
+     *         watchdog.publishResult(best);
+     *     }
+     * }
+     * </code>
+     * If the code wasn't launched with {@link WatchdogLauncher#watchAnytime(long, com.offbynull.watchdog.user.WatchdogCallable) }, the
+     * published result is ignored.
+     * @param result result (may be {@code null})
+     */
+    public void publishResult(Object result) {
+        partialResult = result;
+        partialResultPublished = true;
+    }
+
+    boolean isPartialResultPublished() {
+        return partialResultPublished;
+    }
+
+    Object partialResult() {
+        return partialResult;
+    }
+    
+    
+    
+    
+    // Only applies to watchdogs created after this is invoked
+    static void setDefaultClock(WatchdogClock clock) {
+        defaultClock = clock;
+    }
+
+    // Only applies to watchdogs created after this is invoked
+    static void setDefaultGcPauseCompensation(boolean gcPauseCompensation) {
+        defaultGcPauseCompensation = gcPauseCompensation;
+    }
+
+    // Only applies to watchdogs created after this is invoked
+    static void setDefaultGcPauseSource(LongSupplier gcPauseSource) {
+        defaultGcPauseSource = gcPauseSource;
+    }
+
+    // Only applies to watchdogs created after this is invoked
+    static void setDefaultAbortStrategy(AbortStrategy abortStrategy) {
+        defaultAbortStrategy = abortStrategy;
+    }
+    
+    // Binds a detachable watchdog to the current thread, such that instrumented code running on it sees this watchdog via get(). Attaching
+    // and detaching are synchronized so that the main-thread-only fields are safely handed off between threads.
+    synchronized void attach() {
+        if (!detachable) {
+            throw new IllegalStateException("Watchdog not detachable");
+        }
+        if (closed) {
+            throw new IllegalStateException("Watchdog closed");
+        }
+        if (thread != null) {
+            throw new IllegalStateException("Watchdog already attached");
+        }
+
+        Watchdog enclosing = enclosing();
+
+        thread = Thread.currentThread();
+        bind(this);
+        nestUnder(enclosing);
+    }
+
+    // Unbinds a detachable watchdog from the current thread -- must be invoked on the thread that attached it
+    synchronized void detach() {
+        unnest();
+        thread = null;
+    }
+
+    // Closes a detachable watchdog -- it can't be attached again after this is invoked
+    synchronized void close() {
+        if (!detachable) {
+            throw new IllegalStateException("Watchdog not detachable");
+        }
+        if (thread != null) {
+            throw new IllegalStateException("Watchdog attached");
+        }
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        finishedFlag = true;
+        WatchdogRegistry.unregister(this);
+    }
+    
+    // This object is finished with and must not be used again after this is invoked. Clocks have no way to cancel tasks, so any task
+    // that's still scheduled (e.g. expire()) stays queued, but finds the finished flag set once it runs and returns without doing
+    // anything or re-scheduling itself. Setting the flag while holding the lock that trigger() runs under means that, once this returns,
+    // no blocked interrupter is running against the thread and none ever will -- important for pooled threads, which go on to run other
+    // tasks.
     void shutdown() {
-        TLS.remove();
+        synchronized (blockedInterrupters) {
+            finishedFlag = true;
+        }
+        WatchdogRegistry.unregister(this);
+        unnest();
+    }
+
+    // Launches can nest under an inherited watchdog bound to the current thread, but not under anything else. Returns the inherited
+    // watchdog, or null if nothing is bound.
+    private static Watchdog enclosing() {
+        Watchdog current = current();
+        if (current != null && !current.inherited) {
+            throw new IllegalStateException("Watchdog already active");
+        }
+        return current;
+    }
+
+    // Links this watchdog to the inherited watchdog it's running under (if any), such that it triggers once the inherited one does. The
+    // link is written before checking whether the inherited watchdog triggered, while trigger() sets its flag before reading the link --
+    // one way or the other, this watchdog gets triggered.
+    private void nestUnder(Watchdog enclosing) {
+        if (enclosing == null) {
+            return;
+        }
+
+        this.enclosing = enclosing;
+        enclosing.nested = this;
+        if (enclosing.isTriggered()) {
+            trigger();
+        }
+    }
+
+    // Undoes nestUnder(), handing the current thread back to the inherited watchdog (if any)
+    private void unnest() {
+        if (enclosing == null) {
+            unbind();
+            return;
+        }
+
+        enclosing.nested = null;
+        bind(enclosing);
+        enclosing = null;
+    }
+
+    // Removes any watchdog bound to the current thread -- used by pools before reusing a thread. All other state (time exceeded flag,
+    // uninterruptible section counter, kill processed flag) lives on the watchdog instance itself, which is discarded after each launch.
+    static void clearThread() {
+        unbind();
+    }
+
+    // The watchdog bound to a WatchdogThread lives in a plain field on the thread object itself, which is much cheaper to get at than a
+    // ThreadLocal lookup. All other threads fall back to TLS.
+    private static Watchdog current() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof WatchdogThread ? ((WatchdogThread) thread).getWatchdog() : TLS.get();
+    }
+
+    private static void bind(Watchdog watchdog) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof WatchdogThread) {
+            ((WatchdogThread) thread).setWatchdog(watchdog);
+        } else {
+            TLS.set(watchdog);
+        }
+    }
+
+    private static void unbind() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof WatchdogThread) {
+            ((WatchdogThread) thread).setWatchdog(null);
+        } else {
+            TLS.remove();
+        }
+    }
+
+
+
+    private enum Mode {
+        TIMED,      // timer thread flags the watchdog once the deadline elapses
+        TIMERLESS,  // watched thread checks the clock itself every so often, see createTimerless()
+        DETACHED,   // timed, but not bound to any thread until attached, see createDetached()
+        SHADOW,     // timed, but never aborts the watched code, see createShadow()
+        INHERITED,  // timed, but launches nest under it rather than failing, see createInherited()
+        STATISTICS  // timed, but counts the checks hit for WatchdogStatistics, see createWithStatistics()
     }
 }
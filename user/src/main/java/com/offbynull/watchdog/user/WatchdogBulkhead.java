@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Watchdog bulkhead. Launches instrumented code through {@link WatchdogLauncher}, but limits the number of launches that may be running
+ * at once per key.
+ * <p>
+ * If the limit for a key has been reached, the launch queues up until either a slot frees up or its queue budget runs out. The queue
+ * budget is the smaller of the maximum queue wait and the launch's delay. Time spent waiting in the queue counts against the delay -- if a
+ * launch waits 40 milliseconds for a slot and its delay was 100 milliseconds, the watchdog triggers after another 60 milliseconds. Once
+ * the queue budget runs out, the launch is rejected with a {@link WatchdogRejectedException}.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogBulkhead {
+
+    private final int maxConcurrent;
+    private final long maxQueueWait;
+
+    private final ConcurrentHashMap<String, Compartment> compartments;
+
+    /**
+     * Constructs a {@link WatchdogBulkhead} object.
+     * @param maxConcurrent maximum number of launches that may be running at once per key
+     * @param maxQueueWait maximum amount of time (in milliseconds) a launch may wait for a slot before being rejected ({@code 0} to reject
+     * immediately if no slot is available)
+     * @throws IllegalArgumentException if {@code maxConcurrent} is less than {@code 1} or {@code maxQueueWait} is negative
+     */
+    public WatchdogBulkhead(int maxConcurrent, long maxQueueWait) {
+        if (maxConcurrent <= 0 || maxQueueWait < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueWait = maxQueueWait;
+
+        this.compartments = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration (including time spent waiting for a slot).
+     * @param key bulkhead key (concurrency is limited per key)
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if no slot became available for {@code key} within the queue budget
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public void watch(String key, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watch(key, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration (including time spent waiting for a slot).
+     * @param key bulkhead key (concurrency is limited per key)
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if no slot became available for {@code key} within the queue budget
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public <V> V watch(String key, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (key == null || callable == null) {
+            throw new NullPointerException();
+        }
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        Compartment compartment = compartments.computeIfAbsent(key, k -> new Compartment(maxConcurrent));
+
+        long startTime = System.nanoTime();
+        long queueDeadline = startTime + MILLISECONDS.toNanos(Math.min(maxQueueWait, delay));
+        if (!compartment.acquire(queueDeadline)) {
+            throw new WatchdogRejectedException("Bulkhead full for " + key);
+        }
+
+        try {
+            long remainingDelay = delay - NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            if (remainingDelay <= 0L && delay != 0L) {
+                throw new WatchdogRejectedException("Bulkhead queue budget exhausted for " + key);
+            }
+            return WatchdogLauncher.watch(key, remainingDelay, callable);
+        } finally {
+            compartment.release();
+        }
+    }
+
+
+
+    // Lock-free semaphore. Permits are taken via CAS. Threads that can't get a permit put themselves in a waiter queue and park until
+    // either a permit gets released (releaser unparks the head of the queue) or their queue deadline passes.
+    private static final class Compartment {
+        private final AtomicInteger available;
+        private final ConcurrentLinkedQueue<Thread> waiters;
+
+        Compartment(int permits) {
+            this.available = new AtomicInteger(permits);
+            this.waiters = new ConcurrentLinkedQueue<>();
+        }
+
+        boolean acquire(long deadline) {
+            if (tryAcquire()) {
+                return true;
+            }
+
+            Thread thread = Thread.currentThread();
+            waiters.add(thread);
+            try {
+                while (true) {
+                    // Must try after adding to waiters, otherwise a release between the initial try and the add would get missed
+                    if (tryAcquire()) {
+                        return true;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+
+                    LockSupport.parkNanos(this, remaining);
+                    if (Thread.interrupted()) {
+                        thread.interrupt(); // restore interrupt and give up -- parking would return immediately from here on out
+                        return false;
+                    }
+                }
+            } finally {
+                waiters.remove(thread);
+                // If we gave up while a permit was available (e.g. we were unparked by a release but timed out before taking it), pass
+                // the wake-up on to the next waiter so it doesn't sit parked until its own deadline.
+                if (available.get() > 0) {
+                    unparkNext();
+                }
+            }
+        }
+
+        void release() {
+            available.incrementAndGet();
+            unparkNext();
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = available.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void unparkNext() {
+            Thread waiter = waiters.peek();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+}
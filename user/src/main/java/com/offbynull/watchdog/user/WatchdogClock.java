@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+/**
+ * Clock used by watchdogs to tell time and to schedule their triggers.
+ * <p>
+ * Watchdogs use the system clock by default (see {@link #system() }). Swapping in a different clock via
+ * {@link WatchdogLauncher#setClock(com.offbynull.watchdog.user.WatchdogClock) } is mainly useful for testing -- for example,
+ * {@link VirtualWatchdogClock} lets tests trigger watchdogs deterministically without having to actually wait for delays to elapse.
+ * <p>
+ * Implementations must be thread-safe.
+ * @author Kasra Faghihi
+ */
+public interface WatchdogClock {
+
+    /**
+     * Get the system clock. Time is based on {@link System#nanoTime() } and tasks are scheduled on an internal timer thread.
+     * @return system clock
+     */
+    static WatchdogClock system() {
+        return SystemWatchdogClock.INSTANCE;
+    }
+
+    /**
+     * Get the current time. Like {@link System#nanoTime() }, the value returned has no relation to wall-clock time and is only meaningful
+     * when compared to other values returned by this clock.
+     * @return current time (in nanoseconds)
+     */
+    long nanoTime();
+
+    /**
+     * Schedule a task to run once some amount of time has elapsed. Scheduled tasks are quick and non-blocking (e.g. flagging a watchdog as
+     * triggered), and may be run on any thread.
+     * @param task task to run
+     * @param delay amount of time (in nanoseconds) to wait before running {@code task}
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    void schedule(Runnable task, long delay);
+}
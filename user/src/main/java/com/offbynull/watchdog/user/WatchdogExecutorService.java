@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor service that runs and watches instrumented code on a pool of threads.
+ * <p>
+ * Tasks submitted through {@link #submit(long, com.offbynull.watchdog.user.WatchdogCallable) } and
+ * {@link #submit(long, com.offbynull.watchdog.user.WatchdogRunnable) } are launched via {@link WatchdogLauncher} with their own delay.
+ * All deadlines across all tasks (and all pools) are tracked by the same internal watchdog timer, so no extra scheduler threads are
+ * created per pool. Once a task finishes (successfully, by timing out, or by failing), the worker thread's watchdog state is cleared
+ * before it picks up its next task. If a task times out, its {@link Future} fails with a {@link WatchdogTimeoutException}.
+ * <p>
+ * Tasks submitted through the standard {@link java.util.concurrent.ExecutorService} methods run without a watchdog.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogExecutorService extends AbstractExecutorService {
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submittedCount;
+    private final LongAdder completedCount;
+    private final LongAdder timedOutCount;
+    private final LongAdder failedCount;
+
+    /**
+     * Constructs a {@link WatchdogExecutorService} object. Pool threads are created by a {@link WatchdogThreadFactory}.
+     * @param threadCount number of threads in the pool
+     * @throws IllegalArgumentException if {@code threadCount} is less than {@code 1}
+     */
+    public WatchdogExecutorService(int threadCount) {
+        this(threadCount, new WatchdogThreadFactory());
+    }
+
+    /**
+     * Constructs a {@link WatchdogExecutorService} object.
+     * @param threadCount number of threads in the pool
+     * @param threadFactory factory to create pool threads with (instrumented code finds its watchdog faster if this creates
+     * {@link WatchdogThread}s, see {@link WatchdogThreadFactory})
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code threadCount} is less than {@code 1}
+     */
+    public WatchdogExecutorService(int threadCount, ThreadFactory threadFactory) {
+        if (threadFactory == null) {
+            throw new NullPointerException();
+        }
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.executor = new WatchdogThreadPoolExecutor(threadCount, threadFactory);
+
+        this.submittedCount = new LongAdder();
+        this.completedCount = new LongAdder();
+        this.timedOutCount = new LongAdder();
+        this.failedCount = new LongAdder();
+    }
+
+    /**
+     * Submit instrumented code to run and watch such that it finishes within the specified duration.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers (timer starts once the task starts running)
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return future representing the pending result of {@code callable}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws java.util.concurrent.RejectedExecutionException if this executor service has been shut down
+     */
+    public <V> Future<V> submit(long delay, WatchdogCallable<V> callable) {
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        RunnableFuture<V> future = new FutureTask<>(() -> runWatched(delay, callable));
+        execute(future);
+        submittedCount.increment();
+        return future;
+    }
+
+    /**
+     * Submit instrumented code to run and watch such that it finishes within the specified duration.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers (timer starts once the task starts running)
+     * @param runnable runnable to execute
+     * @return future representing the pending completion of {@code runnable}
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws java.util.concurrent.RejectedExecutionException if this executor service has been shut down
+     */
+    public Future<?> submit(long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        WatchdogCallable<Object> callable = (Watchdog wd) -> {
+            runnable.run(wd);
+            return null;
+        };
+        return submit(delay, callable);
+    }
+
+    private <V> V runWatched(long delay, WatchdogCallable<V> callable) throws Exception {
+        try {
+            V ret = WatchdogLauncher.watch(delay, callable);
+            completedCount.increment();
+            return ret;
+        } catch (WatchdogTimeoutException wte) {
+            timedOutCount.increment();
+            throw wte;
+        } catch (Exception e) {
+            failedCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of watched tasks submitted to this executor service.
+     * @return number of watched tasks submitted
+     */
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    /**
+     * Get the number of watched tasks that finished successfully.
+     * @return number of watched tasks that finished successfully
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * Get the number of watched tasks that timed out.
+     * @return number of watched tasks that timed out
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * Get the number of watched tasks that failed with an exception other than {@link WatchdogTimeoutException}.
+     * @return number of watched tasks that failed
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Get the ratio of finished watched tasks that timed out.
+     * @return ratio of finished watched tasks that timed out ({@code 0.0} if no watched tasks have finished yet)
+     */
+    public double getTimeoutRate() {
+        long timedOut = timedOutCount.sum();
+        long finished = timedOut + completedCount.sum() + failedCount.sum();
+        return finished == 0L ? 0.0 : (double) timedOut / finished;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+
+
+    private static final class WatchdogThreadPoolExecutor extends ThreadPoolExecutor {
+        WatchdogThreadPoolExecutor(int threadCount, ThreadFactory threadFactory) {
+            super(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            // The launcher tears down its watchdog when it returns, but make sure nothing is left bound to this thread before it gets
+            // reused -- a stale watchdog would cause the next launch on this thread to fail with "Watchdog already active". Stale
+            // interrupts (e.g. from a blocked interrupter that interrupted this thread) are cleared by ThreadPoolExecutor itself before
+            // the next task runs.
+            Watchdog.clearThread();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Heap guard. Triggers the watchdogs of selected running watched executions when the heap gets close to full.
+ * <p>
+ * A heap guard sets a collection usage threshold on each heap memory pool that supports one (typically the old generation) and listens
+ * for the JVM's threshold notifications. Collection usage is the pool's occupancy right after a garbage collection, so it reflects live
+ * data rather than garbage that hasn't been collected yet. Each time a garbage collection leaves a pool above its threshold, the guard
+ * triggers up to some maximum number of watchdogs, picked by the guard's {@link Policy}. No more watchdogs are triggered until the
+ * executions triggered last time have finished unwinding -- their memory can't be reclaimed before then, so the next few garbage
+ * collections are likely to still be above the threshold. Triggering behaves exactly the same as if the
+ * delay had elapsed: blocked interrupters get invoked and the launcher throws a {@link WatchdogTimeoutException}. The idea is to abort a
+ * few targeted executions (and let their memory get reclaimed) rather than have the entire JVM grind through back-to-back full garbage
+ * collections before running out of memory. As such, only watchdogs whose executions abort and finish once triggered are ever picked --
+ * shadow launches, detachable launches (see {@link WatchdogLauncher#open(long) }), and deadlines inherited from a parent process never
+ * are.
+ * <p>
+ * A memory pool only has a single collection usage threshold, so only one heap guard should be active at a time (and nothing else
+ * should be setting collection usage thresholds). Closing a heap guard restores the thresholds it replaced.
+ * <p>
+ * Example usage...
+ * <code>
+ * try (WatchdogHeapGuard guard = new WatchdogHeapGuard(0.9, Policy.LARGEST, 2)) {
+ *     serveRequests();
+ * }
+ * </code>
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogHeapGuard implements AutoCloseable {
+
+    private static final AtomicInteger ALLOCATION_TRACKERS = new AtomicInteger();
+
+    private final Policy policy;
+    private final int maxTriggered;
+
+    private final NotificationEmitter emitter;
+    private final NotificationListener listener;
+    private final Map<MemoryPoolMXBean, Long> originalThresholds;
+
+    private final List<Watchdog> victims;                       // watchdogs triggered by the last notification
+    private boolean closed;
+
+    /**
+     * Constructs a {@link WatchdogHeapGuard} object and starts guarding.
+     * @param threshold fraction of each heap memory pool's maximum size at which to start triggering watchdogs
+     * @param policy how to pick which watchdogs to trigger
+     * @param maxTriggered maximum number of watchdogs to trigger per threshold notification
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code threshold} isn't in {@code (0, 1]} or {@code maxTriggered} is less than {@code 1}
+     * @throws IllegalStateException if no heap memory pool supports collection usage thresholds
+     */
+    public WatchdogHeapGuard(double threshold, Policy policy, int maxTriggered) {
+        this(threshold, policy, maxTriggered, ManagementFactory.getMemoryPoolMXBeans(),
+                (NotificationEmitter) ManagementFactory.getMemoryMXBean());
+    }
+
+    WatchdogHeapGuard(double threshold, Policy policy, int maxTriggered, List<MemoryPoolMXBean> memoryPools, NotificationEmitter emitter) {
+        if (policy == null || memoryPools == null || emitter == null) {
+            throw new NullPointerException();
+        }
+        if (!(threshold > 0.0 && threshold <= 1.0) || maxTriggered <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.policy = policy;
+        this.maxTriggered = maxTriggered;
+
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : memoryPools) {
+            if (pool.getType() == MemoryType.HEAP
+                    && pool.isCollectionUsageThresholdSupported()
+                    && pool.getUsage().getMax() != -1L) { // max undefined -- can't calculate threshold
+                pools.add(pool);
+            }
+        }
+        if (pools.isEmpty()) {
+            throw new IllegalStateException("No heap memory pools support collection usage thresholds");
+        }
+
+        this.emitter = emitter;
+        this.listener = (n, handback) -> handle(n);
+        this.originalThresholds = new HashMap<>();
+        this.victims = new ArrayList<>();
+
+        // The listener goes in last -- once it's in, notifications may come in at any time and expect everything to be set up. If
+        // anything fails before then, put back whatever thresholds were already replaced.
+        try {
+            for (MemoryPoolMXBean pool : pools) {
+                originalThresholds.put(pool, pool.getCollectionUsageThreshold());
+                pool.setCollectionUsageThreshold((long) (pool.getUsage().getMax() * threshold));
+            }
+            emitter.addNotificationListener(listener, null, null);
+        } catch (RuntimeException re) {
+            restoreThresholds();
+            throw re;
+        }
+        if (policy == Policy.LARGEST) {
+            ALLOCATION_TRACKERS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops guarding. Subsequent invocations have no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (originalThresholds) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        restoreThresholds();
+        try {
+            emitter.removeNotificationListener(listener);
+        } catch (ListenerNotFoundException lnfe) {
+            throw new IllegalStateException(lnfe); // should never happen
+        }
+        if (policy == Policy.LARGEST) {
+            ALLOCATION_TRACKERS.decrementAndGet();
+        }
+    }
+
+    private void restoreThresholds() {
+        for (Map.Entry<MemoryPoolMXBean, Long> entry : originalThresholds.entrySet()) {
+            entry.getKey().setCollectionUsageThreshold(entry.getValue());
+        }
+    }
+
+    private void handle(Notification notification) {
+        if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            return;
+        }
+
+        MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        boolean guardedPool = false;
+        for (MemoryPoolMXBean pool : originalThresholds.keySet()) {
+            guardedPool |= pool.getName().equals(info.getPoolName());
+        }
+        if (!guardedPool) {
+            return;
+        }
+
+        synchronized (originalThresholds) {
+            if (closed) {
+                return;
+            }
+
+            // Still waiting on the previous victims to unwind? Wait for their memory to be freed up before picking more.
+            victims.removeIf(v -> !WatchdogRegistry.isActive(v));
+            if (!victims.isEmpty()) {
+                return;
+            }
+
+            // Only pick watchdogs whose code unwinds once triggered -- anything else would sit in victims and keep the guard from
+            // shedding anything else
+            List<Watchdog> candidates = new ArrayList<>();
+            for (Watchdog watchdog : WatchdogRegistry.active()) { // oldest to newest
+                if (!watchdog.isTriggered() && watchdog.isSheddable()) {
+                    candidates.add(watchdog);
+                }
+            }
+
+            if (policy == Policy.LARGEST && AllocationCounter.SUPPORTED) { // can't measure allocations? fall back to longest running
+                Map<Watchdog, Long> sizes = new HashMap<>();
+                for (Watchdog watchdog : candidates) {
+                    Thread thread = watchdog.thread();
+                    long start = Math.max(0L, watchdog.startAllocatedBytes()); // launched before tracking was enabled? count everything
+                    sizes.put(watchdog, allocatedBytes(thread) - start);
+                }
+                candidates.sort((x, y) -> Long.compare(sizes.get(y), sizes.get(x)));
+            }
+
+            for (Watchdog watchdog : candidates.subList(0, Math.min(maxTriggered, candidates.size()))) {
+                watchdog.trigger();
+                victims.add(watchdog);
+            }
+        }
+    }
+
+    static boolean isTrackingAllocations() {
+        return ALLOCATION_TRACKERS.get() > 0;
+    }
+
+    static long allocatedBytes(Thread thread) { // -1 if not supported
+        if (!AllocationCounter.SUPPORTED) {
+            return -1L;
+        }
+        return AllocationCounter.BEAN.getThreadAllocatedBytes(thread.getId());
+    }
+    
+    
+    
+    /**
+     * Policy for picking which watchdogs to trigger.
+     */
+    public enum Policy {
+        /**
+         * Trigger the watched executions that have been running the longest.
+         */
+        LONGEST_RUNNING,
+        /**
+         * Trigger the watched executions that have allocated the most memory since they were launched. Allocations are measured per thread
+         * -- if the JVM doesn't support measuring thread allocations, this behaves the same as {@link #LONGEST_RUNNING}. Executions
+         * launched before the heap guard was created are charged for everything their thread has ever allocated.
+         */
+        LARGEST
+    }
+
+    // Holder so that the management bean only gets looked up once allocations actually need measuring.
+    private static final class AllocationCounter {
+        private static final com.sun.management.ThreadMXBean BEAN;
+        private static final boolean SUPPORTED;
+        static {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled()) {
+                BEAN = (com.sun.management.ThreadMXBean) bean;
+                SUPPORTED = true;
+            } else {
+                BEAN = null;
+                SUPPORTED = false;
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.offbynull.watchdog.user;
 
+import java.util.concurrent.TimeUnit;
 
 /**
  * Watchdog launcher.
@@ -68,6 +69,114 @@ public final class WatchdogLauncher {
      * @throws Exception {@code callable}'s exception
      */
     public static <V> V watch(long delay, WatchdogCallable<V> callable) throws Exception {
+        return watchWithKey(null, delay, TimeUnit.MILLISECONDS, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration.
+     * @param key launch key, used to identify the watched execution in {@link WatchdogRegistry}
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed (or watchdog was triggered early) while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watch(String key, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watch(key, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration.
+     * @param key launch key, used to identify the watched execution in {@link WatchdogRegistry}
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed (or watchdog was triggered early) while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watch(String key, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return watchWithKey(key, delay, TimeUnit.MILLISECONDS, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, where the duration is in some arbitrary time
+     * unit.
+     * <p>
+     * Use this for sub-millisecond delays. Note that precision of the delay is limited by the clock -- the system clock's timer thread
+     * may trigger well over a hundred microseconds late (more if it has gone idle and needs to be restarted). For tight deadlines, set
+     * a {@link PrecisionWatchdogClock} via {@link #setClock(com.offbynull.watchdog.user.WatchdogClock) }.
+     * @param delay maximum amount of time to wait before watchdog triggers
+     * @param unit time unit of {@code delay}
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watch(long delay, TimeUnit unit, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watch(delay, unit, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, where the duration is in some arbitrary time
+     * unit. See {@link #watch(long, java.util.concurrent.TimeUnit, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param delay maximum amount of time to wait before watchdog triggers
+     * @param unit time unit of {@code delay}
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watch(long delay, TimeUnit unit, WatchdogCallable<V> callable) throws Exception {
+        if (unit == null) {
+            throw new NullPointerException();
+        }
+        return watchWithKey(null, delay, unit, callable);
+    }
+
+    private static <V> V watchWithKey(String key, long delay, TimeUnit unit, WatchdogCallable<V> callable) throws Exception {
         if (delay < 0L) {
             throw new IllegalArgumentException();
         }
@@ -75,10 +184,644 @@ public final class WatchdogLauncher {
             throw new NullPointerException();
         }
         
-        Watchdog watchdog = null;
+        Watchdog watchdog = Watchdog.create(key, delay, unit);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, without using a timer thread.
+     * <p>
+     * Rather than having a timer thread flag the watchdog once the delay elapses, the watched code checks the clock itself every
+     * {@code checkInterval} branch/method entry checks. This keeps the shared timer thread out of the picture entirely, which is useful if
+     * you want timeouts to trigger reliably even when the JVM is under heavy CPU load. The trade-offs are that...
+     * <ul>
+     * <li>blocked interrupters are never invoked -- there is no thread around to invoke them while the main thread is blocked.</li>
+     * <li>the watchdog may trigger late by up to {@code checkInterval} checks.</li>
+     * </ul>
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param checkInterval number of checks between clock reads
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative or {@code checkInterval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchTimerless(long delay, int checkInterval, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchTimerless(delay, checkInterval, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, without using a timer thread. See
+     * {@link #watchTimerless(long, int, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param checkInterval number of checks between clock reads
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative or {@code checkInterval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchTimerless(long delay, int checkInterval, WatchdogCallable<V> callable) throws Exception {
+        if (delay < 0L || checkInterval <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createTimerless(delay, checkInterval);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, periodically yielding the CPU to other threads.
+     * <p>
+     * Every {@code checkInterval} branch/method entry checks, the watched code checks how long it's been running since it last yielded. If
+     * that's longer than {@code timeSlice}, it calls {@link Thread#yield() } before continuing. This keeps a handful of long-running
+     * CPU-bound watched tasks from monopolizing a thread pool's CPUs at the expense of shorter tasks sharing those CPUs. Note that yielding
+     * is only a hint to the scheduler -- if nothing else is waiting to run, the watched code keeps running.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param timeSlice amount of time (in milliseconds) to run before yielding
+     * @param checkInterval number of checks between clock reads
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative or {@code timeSlice}/{@code checkInterval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchTimeSliced(long delay, long timeSlice, int checkInterval, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchTimeSliced(delay, timeSlice, checkInterval, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, periodically yielding the CPU to other threads.
+     * See {@link #watchTimeSliced(long, long, int, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param timeSlice amount of time (in milliseconds) to run before yielding
+     * @param checkInterval number of checks between clock reads
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative or {@code timeSlice}/{@code checkInterval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchTimeSliced(long delay, long timeSlice, int checkInterval, WatchdogCallable<V> callable) throws Exception {
+        if (delay < 0L || timeSlice <= 0L || checkInterval <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createTimeSliced(delay, timeSlice, checkInterval);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, throttling it once it runs past a soft delay.
+     * <p>
+     * Once {@code softDelay} elapses, the watched code isn't killed. Instead, it gets paused for {@code pauseTime} on its next
+     * branch/method entry check, then let run for {@code runTime}, then paused again, and so on. This lets long-running but legitimate
+     * code (e.g. batch jobs) keep making progress at a reduced share of the CPU. Pauses are held off while the watched code is in an
+     * uninterruptible section. Once {@code delay} elapses, the watchdog triggers as usual.
+     * <p>
+     * Example usage (throttle to a 25% duty cycle after 1 second, kill after 1 minute)...
+     * <code>
+     * WatchdogLauncher.watchThrottled(60000L, 1000L, 10L, 30L, wd -&gt; batchJob(wd));
+     * </code>
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param softDelay amount of time (in milliseconds) to run before throttling starts
+     * @param runTime amount of time (in milliseconds) to let run between pauses once throttled
+     * @param pauseTime amount of time (in milliseconds) to pause for once throttled
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay}/{@code softDelay} is negative or {@code runTime}/{@code pauseTime} is less than
+     * {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchThrottled(long delay, long softDelay, long runTime, long pauseTime, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchThrottled(delay, softDelay, runTime, pauseTime, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, throttling it once it runs past a soft delay.
+     * See {@link #watchThrottled(long, long, long, long, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param softDelay amount of time (in milliseconds) to run before throttling starts
+     * @param runTime amount of time (in milliseconds) to let run between pauses once throttled
+     * @param pauseTime amount of time (in milliseconds) to pause for once throttled
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay}/{@code softDelay} is negative or {@code runTime}/{@code pauseTime} is less than
+     * {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchThrottled(long delay, long softDelay, long runTime, long pauseTime, WatchdogCallable<V> callable)
+            throws Exception {
+        if (delay < 0L || softDelay < 0L || runTime <= 0L || pauseTime <= 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createThrottled(delay, softDelay, runTime, pauseTime);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it keeps making progress, without limiting how long it may run for.
+     * <p>
+     * The watched code reports progress by invoking {@link Watchdog#renew() }. If {@code interval} elapses without a renewal (measured
+     * from the start or from the last renewal), the watchdog triggers. This lets code that's expected to run for a long time (e.g. stream
+     * consumers) be killed soon after it stalls.
+     * <p>
+     * Example usage (kill if a message takes longer than 5 seconds to process)...
+     * <code>
+     * WatchdogLauncher.watchHeartbeat(5000L, wd -&gt; {
+     *     while (true) {
+     *         process(consumer.poll());
+     *         wd.renew();
+     *     }
+     * });
+     * </code>
+     * @param interval maximum amount of time (in milliseconds) to wait between renewals before watchdog triggers
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code interval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException interval elapsed without a renewal while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchHeartbeat(long interval, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchHeartbeat(interval, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it keeps making progress, without limiting how long it may run for. See
+     * {@link #watchHeartbeat(long, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param interval maximum amount of time (in milliseconds) to wait between renewals before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code interval} is less than {@code 1}
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException interval elapsed without a renewal while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchHeartbeat(long interval, WatchdogCallable<V> callable) throws Exception {
+        if (interval <= 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createHeartbeat(interval, -1L);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it keeps making progress and finishes within the specified duration. Same as
+     * {@link #watchHeartbeat(long, com.offbynull.watchdog.user.WatchdogRunnable) }, but the watchdog also triggers once {@code delay}
+     * elapses, regardless of how recently the code renewed.
+     * @param interval maximum amount of time (in milliseconds) to wait between renewals before watchdog triggers
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code interval} is less than {@code 1} or {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException interval elapsed without a renewal or delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchHeartbeat(long interval, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchHeartbeat(interval, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it keeps making progress and finishes within the specified duration. See
+     * {@link #watchHeartbeat(long, long, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param interval maximum amount of time (in milliseconds) to wait between renewals before watchdog triggers
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code interval} is less than {@code 1} or {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException interval elapsed without a renewal or delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchHeartbeat(long interval, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (interval <= 0L || delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createHeartbeat(interval, delay);
+        return launch(watchdog, callable);
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, falling back to the best result published so
+     * far if it doesn't.
+     * <p>
+     * Watched code publishes results as it improves on them via {@link Watchdog#publishResult(java.lang.Object) }. If the watchdog
+     * triggers and {@code callable} gets aborted, the most recently published result is returned instead of throwing a
+     * {@link WatchdogTimeoutException}. A {@link WatchdogTimeoutException} is only thrown if nothing was published. If {@code callable}
+     * returns normally, what it returns is always the result -- even if the delay elapsed before it got to return (e.g. it was in an
+     * uninterruptible section when the watchdog triggered).
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute (must only publish results of type {@code V})
+     * @param <V> the result type of {@code callable}
+     * @return callable result, or the last published result if {@code callable} was aborted
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException code was aborted and no result was published
+     * @throws Exception {@code callable}'s exception
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V watchAnytime(long delay, WatchdogCallable<V> callable) throws Exception {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.create(null, delay, TimeUnit.MILLISECONDS);
+        try {
+            return callable.call(watchdog); // returned normally, so this is the final result -- don't swap in a stale published result
+        } catch (Exception e) {
+            if (!isAborted(watchdog, e)) {
+                throw e;
+            }
+            if (watchdog.isPartialResultPublished()) {
+                return (V) watchdog.partialResult();
+            }
+            throw new WatchdogTimeoutException(e);
+        } finally {
+            watchdog.shutdown();
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, collecting statistics on the execution.
+     * <p>
+     * Statistics are returned alongside the callable's result. If the watchdog triggers, they're available through
+     * {@link WatchdogTimeoutException#getStatistics() } instead. Statistics are collected in plain fields on the watching thread, but
+     * every check the code hits goes through the slower path that counts it (launches that don't collect statistics aren't affected).
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result along with statistics
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> WatchdogResult<V> watchWithStatistics(long delay, WatchdogCallable<V> callable) throws Exception {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog watchdog = Watchdog.createWithStatistics(delay);
+        long startCpuTime = WatchdogStatistics.currentThreadCpuTime();
+        try {
+            V ret = launch(watchdog, callable);
+            return new WatchdogResult<>(ret, new WatchdogStatistics(watchdog, startCpuTime, false));
+        } catch (WatchdogTimeoutException wte) {
+            wte.setStatistics(new WatchdogStatistics(watchdog, startCpuTime, true));
+            throw wte;
+        }
+    }
+
+    /**
+     * Run instrumented code under a shadow watchdog -- the deadline is tracked, but the code is never aborted.
+     * <p>
+     * Once the delay elapses, the first branch/method entry check the watched code hits notes where it was (for a sample of launches),
+     * and the code carries on as normal. Once the code returns, the amount it overran its deadline by (if any) is recorded against
+     * {@code key} in {@link WatchdogShadowRecorder}. Blocked interrupters are never invoked. This is useful for rolling out watchdogs on
+     * existing code paths -- run in shadow first to find out how long the code really takes, then switch to
+     * {@link #watch(java.lang.String, long, com.offbynull.watchdog.user.WatchdogRunnable) } once the delay is sized properly.
+     * @param key launch key, used to group recorded data
+     * @param delay amount of time (in milliseconds) the code would have had before the watchdog triggered
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void watchShadow(String key, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watchShadow(key, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run instrumented code under a shadow watchdog -- the deadline is tracked, but the code is never aborted. See
+     * {@link #watchShadow(java.lang.String, long, com.offbynull.watchdog.user.WatchdogRunnable) } for details.
+     * @param key launch key, used to group recorded data
+     * @param delay amount of time (in milliseconds) the code would have had before the watchdog triggered
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V watchShadow(String key, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (key == null || callable == null) {
+            throw new NullPointerException();
+        }
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        Watchdog watchdog = Watchdog.createShadow(key, delay);
+        try {
+            return callable.call(watchdog);
+        } finally {
+            long overrun = watchdog.clock().nanoTime() - watchdog.deadline();
+            watchdog.shutdown();
+            WatchdogShadowRecorder.record(key, overrun, watchdog.shadowStack());
+        }
+    }
+
+    /**
+     * Open a detached watchdog for a logical task that runs in pieces, potentially interleaved with other tasks on the same thread (e.g.
+     * continuations on an event loop).
+     * <p>
+     * The delay starts elapsing as soon as the watchdog is opened, and keeps elapsing across all pieces of the task (including the time
+     * in between pieces). Each piece is run through
+     * {@link #resume(com.offbynull.watchdog.user.Watchdog, com.offbynull.watchdog.user.WatchdogCallable) }, which attaches the watchdog
+     * to the current thread for the duration of that piece -- instrumented code running in the piece sees the watchdog through
+     * {@link Watchdog#get() } as usual. Once the task is done, the watchdog must be closed via
+     * {@link #close(com.offbynull.watchdog.user.Watchdog) }.
+     * <p>
+     * Example usage...
+     * <code>
+     * Watchdog wd = WatchdogLauncher.open(1000L);
+     * eventLoop.submit(() -&gt; {
+     *     WatchdogLauncher.resume(wd, w -&gt; parseRequest(w));
+     *     database.query(..., rows -&gt; {
+     *         try {
+     *             WatchdogLauncher.resume(wd, w -&gt; renderResponse(w, rows));
+     *         } finally {
+     *             WatchdogLauncher.close(wd);
+     *         }
+     *     });
+     * });
+     * </code>
+     * Blocked interrupters are only invoked if the watchdog triggers while attached -- while detached, there's no thread to unblock.
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @return detached watchdog
+     * @throws IllegalArgumentException if {@code delay} is negative
+     */
+    public static Watchdog open(long delay) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        return Watchdog.createDetached(delay);
+    }
+
+    /**
+     * Run and watch a piece of instrumented code under a watchdog previously opened via {@link #open(long) }. See
+     * {@link #open(long) } for details.
+     * @param watchdog watchdog to attach to the current thread while {@code runnable} runs
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if this method was invoked from code already being watched, or if {@code watchdog} wasn't created via
+     * {@link #open(long) }, is already attached to a thread, or is closed
+     * @throws WatchdogTimeoutException delay elapsed before or while code was running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public static void resume(Watchdog watchdog, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            resume(watchdog, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch a piece of instrumented code under a watchdog previously opened via {@link #open(long) }. See
+     * {@link #open(long) } for details.
+     * @param watchdog watchdog to attach to the current thread while {@code callable} runs
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if this method was invoked from code already being watched, or if {@code watchdog} wasn't created via
+     * {@link #open(long) }, is already attached to a thread, or is closed
+     * @throws WatchdogTimeoutException delay elapsed before or while code was running
+     * @throws Exception {@code callable}'s exception
+     */
+    public static <V> V resume(Watchdog watchdog, WatchdogCallable<V> callable) throws Exception {
+        if (watchdog == null || callable == null) {
+            throw new NullPointerException();
+        }
+
+        watchdog.attach();
+        try {
+            if (watchdog.isTimeExceeded()) { // triggered while detached (or during an earlier piece) -- don't bother running
+                throw new WatchdogTimeoutException();
+            }
+            return run(watchdog, callable);
+        } finally {
+            watchdog.detach();
+        }
+    }
+
+    /**
+     * Close a watchdog previously opened via {@link #open(long) }. Subsequent invocations have no effect.
+     * @param watchdog watchdog to close
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalStateException if {@code watchdog} wasn't created via {@link #open(long) } or is currently attached to a thread
+     */
+    public static void close(Watchdog watchdog) {
+        if (watchdog == null) {
+            throw new NullPointerException();
+        }
+
+        watchdog.close();
+    }
+
+    /**
+     * Set the clock that watchdogs use to tell time and schedule their triggers. Only applies to code launched after this method returns.
+     * Defaults to {@link WatchdogClock#system() }.
+     * @param clock clock
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static void setClock(WatchdogClock clock) {
+        if (clock == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog.setDefaultClock(clock);
+    }
+
+    /**
+     * Set whether watchdogs should extend their deadlines by the amount of time the JVM spends in stop-the-world garbage collection pauses
+     * while they're running. Only applies to code launched after this method returns. Defaults to {@code false}.
+     * <p>
+     * A long full garbage collection pauses every thread in the JVM, so every watched execution that overlaps it loses that time through
+     * no fault of its own. Without compensation, a long enough pause causes every watchdog whose deadline fell within it to trigger at
+     * once. With compensation, once a watchdog's deadline elapses, the timer checks how much time was spent in stop-the-world pauses since
+     * the watchdog was created and, if any, pushes the deadline back by that much before triggering. Heartbeat intervals (see
+     * {@link #watchHeartbeat(long, com.offbynull.watchdog.user.WatchdogCallable) }) and item budgets (see
+     * {@link Watchdog#beginItem(long) }) get pushed back the same way before they run out. Pause time is measured via
+     * {@link java.lang.management.GarbageCollectorMXBean}s (beans for concurrent collection cycles are ignored) at millisecond
+     * granularity.
+     * <p>
+     * Watchdogs launched via {@link #watchTimerless(long, int, com.offbynull.watchdog.user.WatchdogCallable) } aren't compensated --
+     * they check their deadlines on the watched thread, where polling garbage collection times would be too expensive.
+     * @param gcPauseCompensation {@code true} to enable, {@code false} to disable
+     */
+    public static void setGcPauseCompensation(boolean gcPauseCompensation) {
+        Watchdog.setDefaultGcPauseCompensation(gcPauseCompensation);
+    }
+
+    /**
+     * Set the strategy used to create the {@link CodeInterruptedException} that breaks out of watched code. Only applies to code launched
+     * after this method returns. Defaults to {@link AbortStrategy#fullStack() }.
+     * @param abortStrategy abort strategy
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static void setAbortStrategy(AbortStrategy abortStrategy) {
+        if (abortStrategy == null) {
+            throw new NullPointerException();
+        }
+
+        Watchdog.setDefaultAbortStrategy(abortStrategy);
+    }
+
+    private static <V> V launch(Watchdog watchdog, WatchdogCallable<V> callable) throws Exception {
+        try {
+            return run(watchdog, callable);
+        } finally {
+            watchdog.shutdown();
+        }
+    }
+
+    private static <V> V run(Watchdog watchdog, WatchdogCallable<V> callable) throws Exception {
         try {
-            watchdog = Watchdog.create(delay);
-            
             V ret = callable.call(watchdog);
             if (watchdog.isTimeExceeded()) {
                 throw new WatchdogTimeoutException();
@@ -86,14 +829,15 @@ public final class WatchdogLauncher {
             
             return ret;
         } catch (Exception e) {
-            if (watchdog != null && watchdog.isTimeExceeded()) {
+            if (isAborted(watchdog, e)) {
                 throw new WatchdogTimeoutException(e);
             }
             throw e;
-        } finally {
-            if (watchdog != null) {
-                watchdog.shutdown();
-            }
         }
     }
+
+    // Either the launch timed out, or an item ran out of budget and the watched code let the abort escape (see Watchdog.beginItem())
+    private static boolean isAborted(Watchdog watchdog, Exception e) {
+        return watchdog.isTimeExceeded() || (e instanceof CodeInterruptedException && watchdog.isItemAborted());
+    }
 }
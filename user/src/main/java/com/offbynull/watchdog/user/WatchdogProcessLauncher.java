@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.io.IOException;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Launches child processes from watched code such that they inherit what's left of the watchdog's delay.
+ * <p>
+ * Processes started through {@link #start(com.offbynull.watchdog.user.Watchdog, java.lang.ProcessBuilder) } get the watchdog's deadline
+ * passed to them through the {@value #DEADLINE_ENVIRONMENT_VARIABLE} environment variable. If the child is a JVM running with the
+ * watchdog Java agent, the agent picks up the deadline and applies it to the child's main thread (see {@link #inheritDeadline() }). Once
+ * the parent's watchdog triggers, the child process and all of its descendants are forcibly destroyed, regardless of whether the child
+ * did anything with the deadline.
+ * <p>
+ * The deadline only applies to the process started -- not to processes that it goes on to start itself. Environment variables get
+ * passed down to grandchildren as-is, so the parent's process ID is passed along through
+ * {@value #DEADLINE_PARENT_ENVIRONMENT_VARIABLE}, and a deadline is ignored by any process that isn't a direct child of that process.
+ * For a child to pass its deadline on, it has to start its own children through this class as well.
+ * <p>
+ * The deadline is passed as wall clock time (milliseconds since the epoch) rather than as a remaining duration, so time the child spends
+ * starting up counts against it.
+ * <p>
+ * Example usage...
+ * <code>
+ * WatchdogLauncher.watch(60000L, wd -&gt; {
+ *     Process process = WatchdogProcessLauncher.start(wd, new ProcessBuilder("java", "-javaagent:watchdog.jar", "-jar", "helper.jar"));
+ *     process.waitFor();
+ * });
+ * </code>
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogProcessLauncher {
+
+    /**
+     * Name of the environment variable that the deadline is passed to child processes through.
+     */
+    public static final String DEADLINE_ENVIRONMENT_VARIABLE = "WATCHDOG_DEADLINE";
+
+    /**
+     * Name of the environment variable that the ID of the process that set {@link #DEADLINE_ENVIRONMENT_VARIABLE} is passed to child
+     * processes through.
+     */
+    public static final String DEADLINE_PARENT_ENVIRONMENT_VARIABLE = "WATCHDOG_DEADLINE_PARENT";
+
+    /**
+     * Name of the system property that a deadline can be passed to a JVM through (takes precedence over
+     * {@link #DEADLINE_ENVIRONMENT_VARIABLE}).
+     */
+    public static final String DEADLINE_SYSTEM_PROPERTY = "watchdog.deadline";
+
+    private WatchdogProcessLauncher() {
+        // do nothing
+    }
+
+    /**
+     * Start a child process that inherits {@code watchdog}'s deadline and gets destroyed (along with its descendants) once
+     * {@code watchdog} triggers.
+     * <p>
+     * If {@code watchdog} has already triggered, the process is destroyed immediately after it starts. If {@code watchdog} doesn't have
+     * an overall deadline (e.g. a heartbeat launch without a delay), no deadline is passed to the child, but it still gets destroyed once
+     * {@code watchdog} triggers. Children of detached or shadow watchdogs are never destroyed.
+     * @param watchdog watchdog of the code starting the process
+     * @param processBuilder process builder to start the process with (its environment is modified)
+     * @return started process
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IOException if the process couldn't be started
+     */
+    public static Process start(Watchdog watchdog, ProcessBuilder processBuilder) throws IOException {
+        if (watchdog == null || processBuilder == null) {
+            throw new NullPointerException();
+        }
+
+        long remaining = NANOSECONDS.toMillis(Math.max(0L, watchdog.deadline() - watchdog.clock().nanoTime()));
+        long time = System.currentTimeMillis();
+        if (remaining <= Long.MAX_VALUE - time) { // overflows if the watchdog has no overall deadline
+            processBuilder.environment().put(DEADLINE_ENVIRONMENT_VARIABLE, Long.toString(time + remaining));
+            processBuilder.environment().put(DEADLINE_PARENT_ENVIRONMENT_VARIABLE, Long.toString(ProcessHandle.current().pid()));
+        } else {
+            processBuilder.environment().remove(DEADLINE_ENVIRONMENT_VARIABLE);
+            processBuilder.environment().remove(DEADLINE_PARENT_ENVIRONMENT_VARIABLE);
+        }
+
+        Process process = processBuilder.start();
+
+        BlockedInterrupter blockedInterrupter = t -> destroyTree(process);
+        watchdog.watchBlocking(blockedInterrupter);
+        process.onExit().thenRun(() -> watchdog.unwatchBlocking(blockedInterrupter));
+
+        // Must check after adding the interrupter -- if the watchdog triggered before it was added, the interrupter won't get invoked. Same
+        // as trigger(), leave the process be if the watchdog doesn't interrupt (shadow or detached).
+        if (watchdog.isTriggered() && watchdog.isInterruptingBlocked()) {
+            destroyTree(process);
+        }
+
+        return process;
+    }
+
+    /**
+     * Watch the current thread until the deadline passed in by a parent process (see
+     * {@link #start(com.offbynull.watchdog.user.Watchdog, java.lang.ProcessBuilder) }), if there is one.
+     * <p>
+     * The deadline is read from the {@value #DEADLINE_SYSTEM_PROPERTY} system property, or the {@value #DEADLINE_ENVIRONMENT_VARIABLE}
+     * environment variable if the system property isn't set. The environment variable is ignored if
+     * {@value #DEADLINE_PARENT_ENVIRONMENT_VARIABLE} names a process other than this process's parent (the deadline was meant for some
+     * ancestor). If found, a watchdog is created for the current thread that triggers once the deadline passes, such that instrumented
+     * code running on the current thread from here on out is watched. The watchdog lives for as long as the thread does.
+     * <p>
+     * Code on the current thread can still be launched through {@link WatchdogLauncher} as usual -- such launches nest under the inherited
+     * watchdog rather than failing, triggering once their own delay elapses or once the inherited deadline passes (whichever comes
+     * first). Keep in mind that only instrumented code checks the watchdog. If the code running on the current thread isn't instrumented
+     * (e.g. the Java agent skipped the class with {@code main()} in it), the deadline has no effect on it -- it's then up to the parent
+     * destroying this process once the deadline passes.
+     * <p>
+     * The watchdog Java agent invokes this from its premain (which runs on the main thread), so there's typically no need to invoke this
+     * directly.
+     * @return {@code true} if a deadline was found and applied, {@code false} otherwise
+     * @throws IllegalArgumentException if the deadline (or parent process ID) found isn't a number
+     * @throws IllegalStateException if a watchdog is already active on the current thread
+     */
+    public static boolean inheritDeadline() {
+        String value = System.getProperty(DEADLINE_SYSTEM_PROPERTY);
+        if (value == null) {
+            value = System.getenv(DEADLINE_ENVIRONMENT_VARIABLE);
+            if (value != null && !isFromParent(System.getenv(DEADLINE_PARENT_ENVIRONMENT_VARIABLE))) {
+                return false;
+            }
+        }
+        if (value == null) {
+            return false;
+        }
+
+        long deadline = parseLong(value);
+        long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+        Watchdog.createInherited(remaining);
+        return true;
+    }
+
+    // No parent process ID means the deadline was set by hand rather than by start() -- go with it
+    private static boolean isFromParent(String value) {
+        if (value == null) {
+            return true;
+        }
+
+        long pid = parseLong(value);
+        return ProcessHandle.current().parent().map(ph -> ph.pid() == pid).orElse(false);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException(nfe);
+        }
+    }
+
+    // Descendants are destroyed before the process itself so that they can't get re-parented (and lost track of) in between
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
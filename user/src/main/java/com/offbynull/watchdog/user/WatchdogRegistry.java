@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Registry of all watched executions currently running.
+ * <p>
+ * Every launch through {@link WatchdogLauncher} registers itself here for as long as it runs. This class lets you take snapshots of
+ * those executions for monitoring, and lets you trigger the watchdogs of selected executions early. For example, if the system is
+ * overloaded, you can shed the oldest work for some key right away rather than waiting for each of their deadlines to elapse...
+ * <code>
+ * WatchdogRegistry.triggerOlderThan("expensive-operation", 500L);
+ * </code>
+ * Triggering early behaves exactly the same as if the delay had elapsed: blocked interrupters get invoked and the launcher throws a
+ * {@link WatchdogTimeoutException}.
+ * <p>
+ * This class is thread-safe. The registry is backed by a lock-free skip list ordered by launch order, so iteration always goes from
+ * oldest to newest.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogRegistry {
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong();
+    private static final ConcurrentSkipListMap<Long, Watchdog> ACTIVE = new ConcurrentSkipListMap<>();
+
+    private WatchdogRegistry() {
+        // do nothing
+    }
+
+    static long nextId() {
+        return ID_SEQUENCE.incrementAndGet();
+    }
+
+    static void register(Watchdog watchdog) {
+        ACTIVE.put(watchdog.id(), watchdog);
+    }
+
+    static void unregister(Watchdog watchdog) {
+        ACTIVE.remove(watchdog.id());
+    }
+
+    static Iterable<Watchdog> active() { // ordered from oldest to newest
+        return ACTIVE.values();
+    }
+
+    static boolean isActive(Watchdog watchdog) {
+        return ACTIVE.containsKey(watchdog.id());
+    }
+
+    /**
+     * Get the number of watched executions currently running.
+     * @return number of watched executions currently running
+     */
+    public static int size() {
+        return ACTIVE.size();
+    }
+
+    /**
+     * Take a snapshot of the watched executions currently running.
+     * @return information on each watched execution currently running, ordered from oldest to newest
+     */
+    public static List<WatchdogInfo> snapshot() {
+        return snapshot(x -> true);
+    }
+
+    /**
+     * Take a snapshot of the watched executions currently running that match a filter.
+     * @param filter filter
+     * @return information on each matching watched execution currently running, ordered from oldest to newest
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static List<WatchdogInfo> snapshot(Predicate<WatchdogInfo> filter) {
+        if (filter == null) {
+            throw new NullPointerException();
+        }
+
+        List<WatchdogInfo> ret = new ArrayList<>();
+        for (Watchdog watchdog : ACTIVE.values()) {
+            WatchdogInfo info = new WatchdogInfo(watchdog);
+            if (filter.test(info)) {
+                ret.add(info);
+            }
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * Trigger the watchdogs of running watched executions that match a filter.
+     * @param filter filter
+     * @return number of watchdogs triggered
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public static int trigger(Predicate<WatchdogInfo> filter) {
+        return trigger(filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Trigger the watchdogs of the oldest running watched executions that match a filter.
+     * @param filter filter
+     * @param max maximum number of watchdogs to trigger
+     * @return number of watchdogs triggered
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code max} is negative
+     */
+    public static int trigger(Predicate<WatchdogInfo> filter, int max) {
+        if (filter == null) {
+            throw new NullPointerException();
+        }
+        if (max < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        for (Watchdog watchdog : ACTIVE.values()) {
+            if (count == max) {
+                break;
+            }
+            if (watchdog.isTriggered()) { // already triggered -- don't count
+                continue;
+            }
+            if (filter.test(new WatchdogInfo(watchdog))) {
+                watchdog.trigger();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Trigger the watchdogs of all running watched executions that have been running for longer than some duration.
+     * @param age minimum amount of time (in milliseconds) the watched execution must have been running for
+     * @return number of watchdogs triggered
+     * @throws IllegalArgumentException if {@code age} is negative
+     */
+    public static int triggerOlderThan(long age) {
+        if (age < 0L) {
+            throw new IllegalArgumentException();
+        }
+        return trigger(x -> x.getElapsedTime() > age);
+    }
+
+    /**
+     * Trigger the watchdogs of running watched executions launched with some key that have been running for longer than some duration.
+     * @param key launch key
+     * @param age minimum amount of time (in milliseconds) the watched execution must have been running for
+     * @return number of watchdogs triggered
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code age} is negative
+     */
+    public static int triggerOlderThan(String key, long age) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        if (age < 0L) {
+            throw new IllegalArgumentException();
+        }
+        return trigger(x -> Objects.equals(key, x.getKey()) && x.getElapsedTime() > age);
+    }
+    
+    
+    
+    /**
+     * Information on a running watched execution, as seen at the time a snapshot was taken.
+     */
+    public static final class WatchdogInfo {
+        private final String key;
+        private final String threadName;
+        private final long elapsedTime;
+        private final long remainingTime;
+        private final boolean triggered;
+
+        WatchdogInfo(Watchdog watchdog) {
+            long time = watchdog.clock().nanoTime();
+            this.key = watchdog.key();
+            Thread thread = watchdog.thread();
+            this.threadName = thread == null ? null : thread.getName();
+            this.elapsedTime = MILLISECONDS.convert(time - watchdog.startTime(), NANOSECONDS);
+            this.remainingTime = MILLISECONDS.convert(watchdog.deadline() - time, NANOSECONDS);
+            this.triggered = watchdog.isTriggered();
+        }
+
+        /**
+         * Get the key the watched execution was launched with.
+         * @return launch key, or {@code null} if launched without a key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the name of the thread running the watched execution.
+         * @return thread name, or {@code null} if the watched execution is detached (see
+         * {@link WatchdogLauncher#open(long) })
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Get the amount of time the watched execution has been running for.
+         * @return elapsed time (in milliseconds)
+         */
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        /**
+         * Get the amount of time left until the watched execution's deadline elapses.
+         * @return remaining time (in milliseconds) -- negative if the deadline has already elapsed
+         */
+        public long getRemainingTime() {
+            return remainingTime;
+        }
+
+        /**
+         * Get whether the watched execution's watchdog has been triggered.
+         * @return {@code true} if triggered, {@code false} otherwise
+         */
+        public boolean isTriggered() {
+            return triggered;
+        }
+
+        @Override
+        public String toString() {
+            return "WatchdogInfo{" + "key=" + key + ", threadName=" + threadName + ", elapsedTime=" + elapsedTime
+                    + ", remainingTime=" + remainingTime + ", triggered=" + triggered + '}';
+        }
+    }
+}
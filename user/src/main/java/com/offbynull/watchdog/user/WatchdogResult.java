@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+/**
+ * Result of a watched execution, along with statistics on that execution.
+ * @param <V> result type
+ * @author Kasra Faghihi
+ */
+public final class WatchdogResult<V> {
+    private final V value;
+    private final WatchdogStatistics statistics;
+
+    WatchdogResult(V value, WatchdogStatistics statistics) {
+        this.value = value;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Get the value returned by the watched code.
+     * @return returned value
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Get statistics on the watched execution.
+     * @return statistics
+     */
+    public WatchdogStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "WatchdogResult{" + "value=" + value + ", statistics=" + statistics + '}';
+    }
+}
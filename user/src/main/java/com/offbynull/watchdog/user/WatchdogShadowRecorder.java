@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Recorder for shadow launches (see {@link WatchdogLauncher#watchShadow(java.lang.String, long,
+ * com.offbynull.watchdog.user.WatchdogCallable) }).
+ * <p>
+ * For each launch key, this class keeps...
+ * <ul>
+ * <li>the number of shadow launches and the number of those that overran their deadline.</li>
+ * <li>a log2 histogram of overrun amounts -- bucket {@code 0} counts overruns under 2 microseconds, and bucket {@code i} (for
+ * {@code i > 0}) counts overruns of {@code [2^i, 2^(i+1))} microseconds.</li>
+ * <li>the largest overrun.</li>
+ * <li>the stack traces of where the watched code was when its deadline elapsed, for a sample of overruns (the first overrun and every
+ * {@value #STACK_SAMPLE_INTERVAL}th one after that, keeping the {@value #STACK_SAMPLE_COUNT} most recent).</li>
+ * </ul>
+ * Recording is lock-free, and the histogram is a fixed-size array of counters per key, so keeping shadow launches running on a hot path
+ * is cheap. Capturing stack traces is comparatively expensive, which is why they're sampled.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogShadowRecorder {
+
+    /**
+     * Number of histogram buckets.
+     */
+    public static final int BUCKET_COUNT = 40;
+
+    /**
+     * Overruns per key between stack samples.
+     */
+    public static final int STACK_SAMPLE_INTERVAL = 16;
+
+    /**
+     * Number of most recent stack samples kept per key.
+     */
+    public static final int STACK_SAMPLE_COUNT = 8;
+
+    private static final ConcurrentHashMap<String, KeyRecorder> RECORDERS = new ConcurrentHashMap<>();
+
+    private WatchdogShadowRecorder() {
+        // do nothing
+    }
+
+    static boolean shouldSampleStack(String key) {
+        return RECORDERS.computeIfAbsent(key, k -> new KeyRecorder()).shouldSampleStack();
+    }
+
+    static StackTraceElement[] captureStack() {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        int start = 0; // skip over frames for getStackTrace() and the watchdog's own check methods
+        while (start < stack.length
+                && (stack[start].getClassName().equals(Thread.class.getName())
+                || stack[start].getClassName().equals(Watchdog.class.getName())
+                || stack[start].getClassName().equals(WatchdogShadowRecorder.class.getName()))) {
+            start++;
+        }
+        return Arrays.copyOfRange(stack, start, stack.length);
+    }
+
+    static void record(String key, long overrun, StackTraceElement[] stack) {
+        RECORDERS.computeIfAbsent(key, k -> new KeyRecorder()).record(overrun, stack);
+    }
+
+    /**
+     * Take a snapshot of everything recorded so far.
+     * @return report for each launch key that has been used for shadow launches
+     */
+    public static List<ShadowReport> snapshot() {
+        List<ShadowReport> ret = new ArrayList<>();
+        for (Map.Entry<String, KeyRecorder> entry : RECORDERS.entrySet()) {
+            ret.add(entry.getValue().report(entry.getKey()));
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * Discard everything recorded so far.
+     */
+    public static void reset() {
+        RECORDERS.clear();
+    }
+
+
+
+    private static final class KeyRecorder {
+        private final LongAdder launches = new LongAdder();
+        private final LongAdder overruns = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong maxOverrun = new AtomicLong();
+        private final AtomicLong stackCandidates = new AtomicLong();
+        private final AtomicLong stackSequence = new AtomicLong();
+        private final AtomicReferenceArray<StackTraceElement[]> stacks = new AtomicReferenceArray<>(STACK_SAMPLE_COUNT);
+
+        boolean shouldSampleStack() {
+            return stackCandidates.getAndIncrement() % STACK_SAMPLE_INTERVAL == 0L;
+        }
+
+        void record(long overrun, StackTraceElement[] stack) {
+            launches.increment();
+            if (overrun <= 0L) {
+                return;
+            }
+
+            overruns.increment();
+            long micros = NANOSECONDS.toMicros(overrun);
+            int bucket = micros < 2L ? 0 : Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+            maxOverrun.accumulateAndGet(micros, Math::max);
+            if (stack != null) {
+                int idx = (int) (stackSequence.getAndIncrement() % STACK_SAMPLE_COUNT);
+                stacks.set(idx, stack);
+            }
+        }
+
+        ShadowReport report(String key) {
+            long[] histogramCopy = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                histogramCopy[i] = histogram.get(i);
+            }
+
+            List<StackTraceElement[]> stacksCopy = new ArrayList<>();
+            for (int i = 0; i < STACK_SAMPLE_COUNT; i++) {
+                StackTraceElement[] stack = stacks.get(i);
+                if (stack != null) {
+                    stacksCopy.add(stack.clone());
+                }
+            }
+
+            return new ShadowReport(key, launches.sum(), overruns.sum(), histogramCopy, maxOverrun.get(), stacksCopy);
+        }
+    }
+
+    /**
+     * Shadow launch data recorded for a launch key, as seen at the time a snapshot was taken.
+     */
+    public static final class ShadowReport {
+        private final String key;
+        private final long launches;
+        private final long overruns;
+        private final long[] histogram;
+        private final long maxOverrun;
+        private final List<StackTraceElement[]> sampledStacks;
+
+        ShadowReport(String key, long launches, long overruns, long[] histogram, long maxOverrun,
+                List<StackTraceElement[]> sampledStacks) {
+            this.key = key;
+            this.launches = launches;
+            this.overruns = overruns;
+            this.histogram = histogram;
+            this.maxOverrun = maxOverrun;
+            this.sampledStacks = Collections.unmodifiableList(sampledStacks);
+        }
+
+        /**
+         * Get the launch key.
+         * @return launch key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the number of shadow launches.
+         * @return launch count
+         */
+        public long getLaunches() {
+            return launches;
+        }
+
+        /**
+         * Get the number of shadow launches that overran their deadline.
+         * @return overrun count
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Get the overrun histogram. See {@link WatchdogShadowRecorder} for bucket boundaries.
+         * @return overrun counts per bucket
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Get the largest overrun.
+         * @return largest overrun (in microseconds), or {@code 0} if there were no overruns
+         */
+        public long getMaxOverrun() {
+            return maxOverrun;
+        }
+
+        /**
+         * Get the sampled stack traces of where watched code was when its deadline elapsed.
+         * @return sampled stack traces (in no particular order)
+         */
+        public List<StackTraceElement[]> getSampledStacks() {
+            List<StackTraceElement[]> ret = new ArrayList<>();
+            for (StackTraceElement[] stack : sampledStacks) {
+                ret.add(stack.clone());
+            }
+            return ret;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("ShadowReport{key=").append(key)
+                    .append(", launches=").append(launches)
+                    .append(", overruns=").append(overruns)
+                    .append(", maxOverrun=").append(maxOverrun)
+                    .append(", histogram={");
+            boolean first = true;
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] == 0L) {
+                    continue;
+                }
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(i == 0 ? 0L : 1L << i).append("us=").append(histogram[i]);
+                first = false;
+            }
+            sb.append("}, sampledStacks=").append(sampledStacks.size()).append('}');
+            return sb.toString();
+        }
+    }
+}
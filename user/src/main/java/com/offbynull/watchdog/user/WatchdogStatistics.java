@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Statistics on a watched execution.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogStatistics implements Serializable {
+    static final long serialVersionUID = 0L;
+    
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    
+    // Once this much of the delay has been used up, the deadline is considered close
+    private static final double DEADLINE_CLOSE_RATIO = 0.9;
+
+    private final long wallTime;
+    private final long cpuTime;
+    private final long branchChecks;
+    private final long methodEntryChecks;
+    private final int peakUninterruptibleDepth;
+    private final boolean deadlineClose;
+    private final boolean timedOut;
+
+    WatchdogStatistics(Watchdog watchdog, long startCpuTime, boolean timedOut) {
+        long endCpuTime = currentThreadCpuTime();
+        long endTime = watchdog.clock().nanoTime();
+
+        this.wallTime = endTime - watchdog.startTime();
+        this.cpuTime = startCpuTime == -1L || endCpuTime == -1L ? -1L : endCpuTime - startCpuTime;
+        this.branchChecks = watchdog.branchCheckCount();
+        this.methodEntryChecks = watchdog.methodEntryCheckCount();
+        this.peakUninterruptibleDepth = watchdog.peakUninterruptibleSectionCounter();
+        this.deadlineClose = timedOut || wallTime >= (long) ((watchdog.deadline() - watchdog.startTime()) * DEADLINE_CLOSE_RATIO);
+        this.timedOut = timedOut;
+    }
+
+    static long currentThreadCpuTime() { // -1 if not supported
+        if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        }
+        return -1L;
+    }
+
+    /**
+     * Get the wall clock time the watched execution ran for.
+     * @return elapsed wall time (in nanoseconds)
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Get the CPU time the watched execution's thread used.
+     * @return thread CPU time (in nanoseconds), or {@code -1} if measuring thread CPU time isn't supported by the JVM
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Get the number of branch checks the watched execution hit.
+     * @return branch check count
+     */
+    public long getBranchChecks() {
+        return branchChecks;
+    }
+
+    /**
+     * Get the number of method entry checks the watched execution hit.
+     * @return method entry check count
+     */
+    public long getMethodEntryChecks() {
+        return methodEntryChecks;
+    }
+
+    /**
+     * Get the deepest the watched execution nested uninterruptible sections.
+     * @return peak uninterruptible section depth
+     */
+    public int getPeakUninterruptibleDepth() {
+        return peakUninterruptibleDepth;
+    }
+
+    /**
+     * Get whether the watched execution came close to its deadline (used up 90% or more of its delay, or timed out).
+     * @return {@code true} if the deadline was close, {@code false} otherwise
+     */
+    public boolean isDeadlineClose() {
+        return deadlineClose;
+    }
+
+    /**
+     * Get whether the watched execution timed out.
+     * @return {@code true} if timed out, {@code false} otherwise
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return "WatchdogStatistics{" + "wallTime=" + wallTime + ", cpuTime=" + cpuTime + ", branchChecks=" + branchChecks
+                + ", methodEntryChecks=" + methodEntryChecks + ", peakUninterruptibleDepth=" + peakUninterruptibleDepth
+                + ", deadlineClose=" + deadlineClose + ", timedOut=" + timedOut + '}';
+    }
+}
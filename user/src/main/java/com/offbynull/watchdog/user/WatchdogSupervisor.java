@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongUnaryOperator;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Watchdog supervisor. Launches instrumented code through {@link WatchdogLauncher}, retrying it with jittered backoff if it times out.
+ * <p>
+ * Timeouts are tracked per operation key. If the ratio of timeouts for a key exceeds the failure rate threshold, the circuit for that key
+ * opens and subsequent launches for that key are rejected with a {@link WatchdogRejectedException} (without running anything) until the
+ * open duration elapses. Once the open duration elapses, a single trial launch is let through -- if it finishes without timing out, the
+ * circuit closes again. Otherwise, it re-opens.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogSupervisor {
+
+    private final int maxAttempts;
+    private final long minBackoff;
+    private final long maxBackoff;
+    private final int windowSize;
+    private final double failureRateThreshold;
+    private final long openDuration;
+    private final WatchdogClock clock;
+
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers;
+
+    /**
+     * Constructs a {@link WatchdogSupervisor} object.
+     * @param maxAttempts maximum number of times to launch before giving up (includes initial launch)
+     * @param minBackoff minimum amount of time (in milliseconds) to wait before retrying
+     * @param maxBackoff maximum amount of time (in milliseconds) to wait before retrying
+     * @param windowSize number of most recent launches per key to calculate the failure rate from
+     * @param failureRateThreshold ratio of timed out launches (within the window) at which the circuit opens
+     * @param openDuration amount of time (in milliseconds) to keep the circuit open before letting through a trial launch
+     * @throws IllegalArgumentException if any numeric argument is negative, if {@code maxAttempts} or {@code windowSize} is {@code 0}, if
+     * {@code minBackoff > maxBackoff}, or if {@code failureRateThreshold} isn't in {@code (0, 1]}
+     */
+    public WatchdogSupervisor(int maxAttempts, long minBackoff, long maxBackoff, int windowSize, double failureRateThreshold,
+            long openDuration) {
+        this(maxAttempts, minBackoff, maxBackoff, windowSize, failureRateThreshold, openDuration, WatchdogClock.system());
+    }
+
+    WatchdogSupervisor(int maxAttempts, long minBackoff, long maxBackoff, int windowSize, double failureRateThreshold,
+            long openDuration, WatchdogClock clock) {
+        if (clock == null) {
+            throw new NullPointerException();
+        }
+        if (maxAttempts <= 0
+                || minBackoff < 0L
+                || maxBackoff < minBackoff
+                || windowSize <= 0
+                || !(failureRateThreshold > 0.0 && failureRateThreshold <= 1.0)
+                || openDuration < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+
+        this.circuitBreakers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, retrying if it doesn't.
+     * @param key operation key (failure rates are tracked per key)
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers (applies to each attempt)
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if the circuit for {@code key} is open
+     * @throws WatchdogTimeoutException delay elapsed while code was still running (on the last attempt)
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public void watch(String key, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watch(key, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code such that it finishes within the specified duration, retrying if it doesn't.
+     * @param key operation key (failure rates are tracked per key)
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers (applies to each attempt)
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if the circuit for {@code key} is open
+     * @throws WatchdogTimeoutException delay elapsed while code was still running (on the last attempt)
+     * @throws Exception {@code callable}'s exception
+     */
+    public <V> V watch(String key, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (key == null || callable == null) {
+            throw new NullPointerException();
+        }
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(key, k -> new CircuitBreaker(windowSize));
+
+        int attempt = 0;
+        while (true) {
+            long ticket = circuitBreaker.tryAcquire(clock.nanoTime(), MILLISECONDS.toNanos(openDuration));
+            if (ticket == -1L) {
+                throw new WatchdogRejectedException("Circuit open for " + key);
+            }
+
+            attempt++;
+            try {
+                V ret = WatchdogLauncher.watch(key, delay, callable);
+                circuitBreaker.record(ticket, false, failureRateThreshold, clock.nanoTime());
+                return ret;
+            } catch (WatchdogTimeoutException wte) {
+                circuitBreaker.record(ticket, true, failureRateThreshold, clock.nanoTime());
+                if (attempt >= maxAttempts || !backoff(attempt)) {
+                    throw wte;
+                }
+            } catch (Throwable t) { // Throwable, not Exception -- an Error thrown by a half-open trial must still free up the trial slot
+                circuitBreaker.record(ticket, false, failureRateThreshold, clock.nanoTime()); // not a timeout -- don't count against key
+                throw t;
+            }
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        long wait = backoffTime(minBackoff, maxBackoff, attempt, ThreadLocalRandom.current()::nextLong);
+
+        try {
+            Thread.sleep(wait);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt(); // restore interrupt and stop retrying
+            return false;
+        }
+    }
+
+
+    // Exponential backoff with "equal jitter" -- wait somewhere between half the capped exponential and the capped exponential itself.
+    // random returns a random number in [0, bound) for the bound passed in.
+    static long backoffTime(long minBackoff, long maxBackoff, int attempt, LongUnaryOperator random) {
+        int shift = Math.min(attempt - 1, 62);
+        long exp = minBackoff << shift;
+        long cap = (exp < 0L || (exp >> shift) != minBackoff) ? maxBackoff : Math.min(maxBackoff, exp); // check for overflow
+        long half = cap / 2L;
+        return half + random.applyAsLong(cap - half + 1L);
+    }
+
+
+
+    // Count-based sliding window of timeouts. Only touched once per launch, so synchronizing is fine here.
+    //
+    // Every launch let through gets a ticket, which is the generation the circuit was in at the time. The generation moves forward every
+    // time the circuit changes state, so results from launches let through before the last change are stale and get dropped -- in
+    // particular, only the trial launch (the one let through when going from open to half-open) can close or re-open a half-open
+    // circuit.
+    private static final class CircuitBreaker {
+        private final boolean[] window;
+        private int windowIdx;
+        private int windowCount;
+        private int failureCount;
+
+        private State state;
+        private long openTime;
+        private long generation;
+
+        CircuitBreaker(int windowSize) {
+            this.window = new boolean[windowSize];
+            this.state = State.CLOSED;
+        }
+
+        // Returns -1 if rejected, or the ticket to pass in to record() once the launch finishes
+        synchronized long tryAcquire(long time, long openDuration) {
+            switch (state) {
+                case CLOSED:
+                    return generation;
+                case OPEN:
+                    if (time - openTime < openDuration) {
+                        return -1L;
+                    }
+                    state = State.HALF_OPEN;
+                    generation++;
+                    return generation; // trial launch
+                case HALF_OPEN:
+                    return -1L; // trial launch still in flight
+                default:
+                    throw new IllegalStateException(); // should never happen
+            }
+        }
+
+        synchronized void record(long ticket, boolean failed, double failureRateThreshold, long time) {
+            if (ticket != generation) {
+                return; // stale
+            }
+
+            if (state == State.HALF_OPEN) { // ticket is the trial launch's
+                if (failed) {
+                    open(time);
+                } else {
+                    state = State.CLOSED;
+                    generation++;
+                    reset();
+                }
+                return;
+            }
+
+            if (windowCount == window.length) {
+                if (window[windowIdx]) {
+                    failureCount--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowIdx] = failed;
+            if (failed) {
+                failureCount++;
+            }
+            windowIdx = (windowIdx + 1) % window.length;
+
+            if (windowCount == window.length && (double) failureCount / windowCount >= failureRateThreshold) {
+                open(time);
+            }
+        }
+
+        private void open(long time) {
+            state = State.OPEN;
+            openTime = time;
+            generation++;
+            reset();
+        }
+
+        private void reset() {
+            windowIdx = 0;
+            windowCount = 0;
+            failureCount = 0;
+        }
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Per-tenant CPU budgets for watched executions. Launches instrumented code through {@link WatchdogLauncher}, charging the CPU time each
+ * launch uses to its tenant.
+ * <p>
+ * Each tenant gets the same CPU time budget per rolling window. Before launching, the tenant's usage within the current window (plus
+ * whatever is reserved by the tenant's launches that are still running) is checked...
+ * <ul>
+ * <li>If the tenant has used up its budget, the launch is rejected with a {@link WatchdogRejectedException}.</li>
+ * <li>If the tenant has less budget left than the launch's delay, the delay is shortened to the budget left.</li>
+ * </ul>
+ * The launch then reserves its delay out of the tenant's budget, so concurrent launches for the same tenant can't all be handed the same
+ * remaining budget. Once the launch finishes (successfully or not), the reservation is released and the CPU time it actually used gets
+ * charged to the tenant instead. If measuring thread CPU time isn't supported by the JVM, wall time is charged instead.
+ * <p>
+ * This class is thread-safe. Usage is tracked in lock-free per-tenant counters, so launches for the same tenant don't serialize on each
+ * other.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogTenantBudget {
+
+    private static final int BUCKET_COUNT = 10;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long budget;
+    private final long bucketLength;
+
+    private final WatchdogClock clock;
+    private final long timeOrigin;
+    private final LongSupplier cpuTime;
+
+    private final ConcurrentHashMap<String, TenantAccount> accounts;
+
+    /**
+     * Constructs a {@link WatchdogTenantBudget} object.
+     * @param budget amount of CPU time (in milliseconds) each tenant may use per window
+     * @param window length of the rolling window (in milliseconds)
+     * @throws IllegalArgumentException if any argument is less than {@code 1}
+     */
+    public WatchdogTenantBudget(long budget, long window) {
+        this(budget, window, WatchdogClock.system(), WatchdogTenantBudget::cpuTime);
+    }
+
+    // Time source and CPU time source are swappable so tests don't have to depend on real time / real CPU usage
+    WatchdogTenantBudget(long budget, long window, WatchdogClock clock, LongSupplier cpuTime) {
+        if (clock == null || cpuTime == null) {
+            throw new NullPointerException();
+        }
+        if (budget <= 0L || window <= 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.budget = MILLISECONDS.toNanos(budget);
+        this.bucketLength = Math.max(1L, MILLISECONDS.toNanos(window) / BUCKET_COUNT);
+
+        this.clock = clock;
+        this.timeOrigin = clock.nanoTime();
+        this.cpuTime = cpuTime;
+
+        this.accounts = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Run and watch instrumented code on behalf of a tenant such that it finishes within the specified duration (or within the tenant's
+     * remaining budget, whichever is shorter).
+     * @param tenant tenant
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param runnable runnable to execute
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if {@code tenant} has used up its budget
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws RuntimeException {@code runnable}'s exception
+     */
+    public void watch(String tenant, long delay, WatchdogRunnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            WatchdogCallable<Object> callable = (Watchdog wd) -> {
+                runnable.run(wd);
+                return null;
+            };
+            watch(tenant, delay, callable);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new IllegalStateException(); // should never happen
+        }
+    }
+
+    /**
+     * Run and watch instrumented code on behalf of a tenant such that it finishes within the specified duration (or within the tenant's
+     * remaining budget, whichever is shorter).
+     * @param tenant tenant
+     * @param delay maximum amount of time (in milliseconds) to wait before watchdog triggers
+     * @param callable callable to execute
+     * @param <V> the result type of {@code callable}
+     * @return callable result
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code delay} is negative
+     * @throws IllegalStateException if this method was invoked from code already being watched
+     * @throws WatchdogRejectedException if {@code tenant} has used up its budget
+     * @throws WatchdogTimeoutException delay elapsed while code was still running
+     * @throws Exception {@code callable}'s exception
+     */
+    public <V> V watch(String tenant, long delay, WatchdogCallable<V> callable) throws Exception {
+        if (tenant == null || callable == null) {
+            throw new NullPointerException();
+        }
+        if (delay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        TenantAccount account = accounts.computeIfAbsent(tenant, k -> new TenantAccount());
+
+        long reservation = account.reserve(epoch(), budget, MILLISECONDS.toNanos(delay));
+        if (reservation == -1L) {
+            throw new WatchdogRejectedException("CPU budget exhausted for " + tenant);
+        }
+        long effectiveDelay = (reservation + 999999L) / 1000000L; // round up so that a sliver of budget doesn't become a 0 delay
+
+        long cpuStart = cpuTime.getAsLong();
+        try {
+            return WatchdogLauncher.watch(tenant, effectiveDelay, callable);
+        } finally {
+            account.settle(epoch(), reservation, cpuTime.getAsLong() - cpuStart);
+        }
+    }
+
+    /**
+     * Get the amount of CPU time a tenant has used within the current window.
+     * @param tenant tenant
+     * @return amount of CPU time used (in milliseconds)
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public long getUsage(String tenant) {
+        if (tenant == null) {
+            throw new NullPointerException();
+        }
+
+        TenantAccount account = accounts.get(tenant);
+        return account == null ? 0L : NANOSECONDS.toMillis(account.usage(epoch()));
+    }
+
+    private long epoch() {
+        return (clock.nanoTime() - timeOrigin) / bucketLength;
+    }
+
+    private static long cpuTime() {
+        if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+
+
+
+    // Rolling window split into a ring of buckets, where each bucket covers 1/BUCKET_COUNT of the window. A bucket that belongs to an old
+    // epoch gets replaced (via CAS) by the first charge that lands in its slot for the new epoch -- the bucket object itself is only
+    // allocated once per bucket length, charges within the same bucket just add to its LongAdder. Budget reserved by launches that are
+    // still running is kept separately, outside of the window -- it's swapped for the actual charge once the launch finishes.
+    private static final class TenantAccount {
+        private final AtomicReferenceArray<Bucket> buckets;
+        private final AtomicLong reserved;
+
+        TenantAccount() {
+            this.buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+            this.reserved = new AtomicLong();
+        }
+
+        // Reserves up to amount out of the budget left, returning how much got reserved or -1 if there's no budget left
+        long reserve(long epoch, long budget, long amount) {
+            long used = usage(epoch);
+            while (true) {
+                long current = reserved.get();
+                long remaining = budget - used - current;
+                if (remaining <= 0L) {
+                    return -1L;
+                }
+
+                long reservation = Math.min(amount, remaining);
+                if (reserved.compareAndSet(current, current + reservation)) {
+                    return reservation;
+                }
+            }
+        }
+
+        // Charge before releasing -- in between, the launch is counted twice rather than not at all
+        void settle(long epoch, long reservation, long amount) {
+            charge(epoch, amount);
+            reserved.addAndGet(-reservation);
+        }
+
+        void charge(long epoch, long amount) {
+            int idx = (int) (epoch % BUCKET_COUNT);
+            while (true) {
+                Bucket bucket = buckets.get(idx);
+                if (bucket != null && bucket.epoch == epoch) {
+                    bucket.usage.add(amount);
+                    return;
+                }
+                if (bucket != null && bucket.epoch > epoch) {
+                    return; // slot already moved on to a newer epoch -- this charge is too old to matter
+                }
+
+                Bucket newBucket = new Bucket(epoch);
+                if (buckets.compareAndSet(idx, bucket, newBucket)) {
+                    newBucket.usage.add(amount);
+                    return;
+                }
+            }
+        }
+
+        long usage(long epoch) {
+            long total = 0L;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null && epoch - bucket.epoch < BUCKET_COUNT) {
+                    total += bucket.usage.sum();
+                }
+            }
+            return total;
+        }
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final LongAdder usage;
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+            this.usage = new LongAdder();
+        }
+    }
+}
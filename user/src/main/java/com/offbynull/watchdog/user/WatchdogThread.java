@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+/**
+ * Thread that instrumented code can find its {@link Watchdog} on quickly.
+ * <p>
+ * Instrumented methods that don't take in a {@link Watchdog} as a parameter look up the watchdog for the current thread on every
+ * invocation. For ordinary threads, that's a {@link ThreadLocal} lookup. For threads of this type, the watchdog is kept in a field on the
+ * thread itself, which avoids the hash lookup entirely. This matters most for small hot methods, where the lookup can cost more than the
+ * method body does.
+ * <p>
+ * Use {@link WatchdogThreadFactory} to create these for thread pools. Launching from any other type of thread works just the same, only
+ * without the faster lookup.
+ * @author Kasra Faghihi
+ */
+public class WatchdogThread extends Thread {
+
+    private Watchdog watchdog; // touched by only this thread -- see Watchdog.current()
+
+    /**
+     * Constructs a {@link WatchdogThread} object.
+     * @param target object whose {@code run} method is invoked when this thread is started
+     */
+    public WatchdogThread(Runnable target) {
+        super(target);
+    }
+
+    /**
+     * Constructs a {@link WatchdogThread} object.
+     * @param target object whose {@code run} method is invoked when this thread is started
+     * @param name name of this thread
+     * @throws NullPointerException if {@code name} is {@code null}
+     */
+    public WatchdogThread(Runnable target, String name) {
+        super(target, name);
+    }
+
+    /**
+     * Constructs a {@link WatchdogThread} object.
+     * @param group thread group this thread belongs to ({@code null} for the current thread's group)
+     * @param target object whose {@code run} method is invoked when this thread is started
+     * @param name name of this thread
+     * @throws NullPointerException if {@code name} is {@code null}
+     */
+    public WatchdogThread(ThreadGroup group, Runnable target, String name) {
+        super(group, target, name);
+    }
+
+    final Watchdog getWatchdog() {
+        return watchdog;
+    }
+
+    final void setWatchdog(Watchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+}
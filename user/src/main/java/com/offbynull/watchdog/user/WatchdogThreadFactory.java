@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, Kasra Faghihi, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory that creates {@link WatchdogThread}s. Threads are named {@code watchdog-pool-N-thread-M} (unless a name prefix is given)
+ * and belong to the thread group of whichever thread created the factory, similar to
+ * {@link java.util.concurrent.Executors#defaultThreadFactory() }.
+ * <p>
+ * This class is thread-safe.
+ * @author Kasra Faghihi
+ */
+public final class WatchdogThreadFactory implements ThreadFactory {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+
+    private final ThreadGroup group;
+    private final String namePrefix;
+    private final boolean daemon;
+    private final AtomicInteger threadNumber;
+
+    /**
+     * Constructs a {@link WatchdogThreadFactory} object that creates non-daemon threads.
+     */
+    public WatchdogThreadFactory() {
+        this("watchdog-pool-" + POOL_NUMBER.getAndIncrement() + "-thread-", false);
+    }
+
+    /**
+     * Constructs a {@link WatchdogThreadFactory} object.
+     * @param namePrefix prefix of thread names (threads are named by appending a sequence number to this)
+     * @param daemon whether threads created should be daemon threads
+     * @throws NullPointerException if any argument is {@code null}
+     */
+    public WatchdogThreadFactory(String namePrefix, boolean daemon) {
+        if (namePrefix == null) {
+            throw new NullPointerException();
+        }
+
+        this.group = Thread.currentThread().getThreadGroup();
+        this.namePrefix = namePrefix;
+        this.daemon = daemon;
+        this.threadNumber = new AtomicInteger(1);
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        WatchdogThread thread = new WatchdogThread(group, r, namePrefix + threadNumber.getAndIncrement());
+        thread.setDaemon(daemon);
+        if (thread.getPriority() != Thread.NORM_PRIORITY) {
+            thread.setPriority(Thread.NORM_PRIORITY);
+        }
+        return thread;
+    }
+}
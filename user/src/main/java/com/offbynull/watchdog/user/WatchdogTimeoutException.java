@@ -23,10 +23,25 @@ package com.offbynull.watchdog.user;
 public final class WatchdogTimeoutException extends RuntimeException {
     static final long serialVersionUID = 0L;
 
+    private WatchdogStatistics statistics;
+
     WatchdogTimeoutException() {
     }
 
     WatchdogTimeoutException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * Get statistics for the watched execution that timed out. Only available if the code was launched through
+     * {@link WatchdogLauncher#watchWithStatistics(long, com.offbynull.watchdog.user.WatchdogCallable) }.
+     * @return statistics, or {@code null} if not available
+     */
+    public WatchdogStatistics getStatistics() {
+        return statistics;
+    }
+
+    void setStatistics(WatchdogStatistics statistics) {
+        this.statistics = statistics;
+    }
 }
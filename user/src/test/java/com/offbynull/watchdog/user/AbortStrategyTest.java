@@ -0,0 +1,107 @@
+package com.offbynull.watchdog.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class AbortStrategyTest {
+
+    private VirtualWatchdogClock clock;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setAbortStrategy(AbortStrategy.fullStack());
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustFillInStackTraceOnEveryAbortWithFullStack() {
+        WatchdogLauncher.setAbortStrategy(AbortStrategy.fullStack());
+
+        WatchdogTimeoutException wte1 = abort();
+        WatchdogTimeoutException wte2 = abort();
+
+        assertTrue(wte1.getStackTrace().length > 0);
+        assertTrue(wte1.getCause().getStackTrace().length > 0);
+        assertTrue(wte2.getCause().getStackTrace().length > 0);
+        assertNotSame(wte1.getCause(), wte2.getCause());
+    }
+
+    @Test
+    public void mustShareStacklessExceptionAcrossAbortsWithStackless() {
+        WatchdogLauncher.setAbortStrategy(AbortStrategy.stackless());
+
+        WatchdogTimeoutException wte1 = abort();
+        WatchdogTimeoutException wte2 = abort();
+
+        assertTrue(wte1.getStackTrace().length > 0); // timeout exception still gets its own stack trace
+        assertEquals(0, wte1.getCause().getStackTrace().length);
+        assertSame(wte1.getCause(), wte2.getCause());
+
+        wte1.getCause().addSuppressed(new IllegalStateException()); // shared -- must not accumulate state across aborts
+        assertEquals(0, wte2.getCause().getSuppressed().length);
+    }
+
+    @Test
+    public void mustFillInStackTraceOnOneInEveryNAbortsWithSampled() {
+        WatchdogLauncher.setAbortStrategy(AbortStrategy.sampled(3));
+
+        for (int i = 0; i < 7; i++) {
+            CodeInterruptedException cie = (CodeInterruptedException) abort().getCause();
+            if (i % 3 == 0) {
+                assertTrue(cie.getStackTrace().length > 0);
+            } else {
+                assertEquals(0, cie.getStackTrace().length);
+                assertNotEquals(null, cie.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void mustOnlyApplyStrategyToLaunchesAfterSet() {
+        WatchdogLauncher.setAbortStrategy(AbortStrategy.fullStack());
+
+        WatchdogTimeoutException wte = assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(100L, wd -> {
+                WatchdogLauncher.setAbortStrategy(AbortStrategy.stackless());
+                clock.advance(100L);
+                wd.onBranch();
+            });
+        });
+        assertTrue(wte.getCause().getStackTrace().length > 0);
+    }
+
+    @Test
+    public void mustTreatSampledWithIntervalOfOneAsFullStack() {
+        assertSame(AbortStrategy.fullStack(), AbortStrategy.sampled(1));
+    }
+
+    @Test
+    public void mustRejectBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> AbortStrategy.sampled(0));
+        assertThrows(NullPointerException.class, () -> WatchdogLauncher.setAbortStrategy(null));
+    }
+
+    private WatchdogTimeoutException abort() {
+        WatchdogTimeoutException wte = assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(100L, wd -> {
+                clock.advance(100L);
+                wd.onBranch();
+            });
+        });
+        assertTrue(wte.getCause() instanceof CodeInterruptedException);
+        return wte;
+    }
+}
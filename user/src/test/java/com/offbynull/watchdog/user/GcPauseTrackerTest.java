@@ -0,0 +1,27 @@
+package com.offbynull.watchdog.user;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public final class GcPauseTrackerTest {
+
+    @Test
+    public void mustReportPauseTimeInWholeMilliseconds() {
+        long time = GcPauseTracker.totalPauseTime();
+        assertTrue(time >= 0L);
+        assertEquals(0L, time % MILLISECONDS.toNanos(1L)); // GC beans only report milliseconds
+    }
+
+    @Test
+    public void mustNeverGoBackwards() {
+        long last = GcPauseTracker.totalPauseTime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long time = GcPauseTracker.totalPauseTime();
+            assertTrue(time >= last);
+            last = time;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.offbynull.watchdog.user;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class PrecisionWatchdogClockTest {
+
+    private PrecisionWatchdogClock fixture;
+
+    @BeforeEach
+    public void before() {
+        fixture = new PrecisionWatchdogClock();
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+        fixture.close();
+    }
+
+    @Test
+    public void mustNeverGoBackwards() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        AtomicBoolean wentBackwards = new AtomicBoolean();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                long last = fixture.nanoTime();
+                for (int j = 0; j < 1000000; j++) {
+                    long time = fixture.nanoTime();
+                    if (time - last < 0L) {
+                        wentBackwards.set(true);
+                    }
+                    last = time;
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(wentBackwards.get());
+    }
+
+    @Test
+    public void mustShareTimeBaseWithSystemNanoTime() {
+        long before = System.nanoTime();
+        long time = fixture.nanoTime();
+        long after = System.nanoTime();
+
+        assertTrue(time - before >= 0L);
+        assertTrue(after - time >= 0L);
+    }
+
+    @Test
+    public void mustNotRunTaskBeforeDelayInNanoseconds() throws Exception {
+        long delay = MICROSECONDS.toNanos(500L);
+        AtomicLong ranAt = new AtomicLong();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        long scheduledAt = System.nanoTime();
+        fixture.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, delay);
+
+        assertTrue(ran.await(10L, SECONDS));
+        assertTrue(ranAt.get() - scheduledAt >= delay);
+    }
+
+    @Test
+    public void mustConvertSpinThresholdUnit() throws Exception {
+        PrecisionWatchdogClock clock = new PrecisionWatchdogClock(1L, MILLISECONDS); // spins the full 1ms before each task
+        try {
+            long delay = MILLISECONDS.toNanos(2L);
+            AtomicLong ranAt = new AtomicLong();
+            CountDownLatch ran = new CountDownLatch(1);
+
+            long scheduledAt = System.nanoTime();
+            clock.schedule(() -> {
+                ranAt.set(System.nanoTime());
+                ran.countDown();
+            }, delay);
+
+            assertTrue(ran.await(10L, SECONDS));
+            assertTrue(ranAt.get() - scheduledAt >= delay);
+        } finally {
+            clock.close();
+        }
+    }
+
+    @Test
+    public void mustRunTasksInDueOrder() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ran = new CountDownLatch(3);
+
+        fixture.schedule(() -> { order.add(3); ran.countDown(); }, MILLISECONDS.toNanos(300L));
+        fixture.schedule(() -> { order.add(2); ran.countDown(); }, MILLISECONDS.toNanos(200L));
+        fixture.schedule(() -> { order.add(1); ran.countDown(); }, MILLISECONDS.toNanos(100L)); // wakes timer thread early
+
+        assertTrue(ran.await(10L, SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3), order);
+    }
+
+    @Test
+    public void mustTriggerWatchdogWithSubMillisecondDelay() {
+        WatchdogLauncher.setClock(fixture);
+
+        AtomicLong abortedAt = new AtomicLong();
+        WatchdogRunnable runnable = wd -> {
+            try {
+                while (true) {
+                    wd.onBranch();
+                }
+            } finally {
+                abortedAt.set(System.nanoTime());
+            }
+        };
+
+        long launchedAt = System.nanoTime(); // before the watchdog's start time, so the measured elapsed time can't come up short
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watch(500L, MICROSECONDS, runnable));
+        assertTrue(abortedAt.get() - launchedAt >= MICROSECONDS.toNanos(500L));
+    }
+
+    @Test
+    public void mustRejectSchedulingOnceClosed() {
+        fixture.close();
+        assertThrows(IllegalStateException.class, () -> fixture.schedule(() -> { }, 0L));
+    }
+
+    @Test
+    public void mustRejectBadArguments() {
+        assertThrows(NullPointerException.class, () -> new PrecisionWatchdogClock(1L, (TimeUnit) null));
+        assertThrows(IllegalArgumentException.class, () -> new PrecisionWatchdogClock(-1L, MICROSECONDS));
+        assertThrows(NullPointerException.class, () -> fixture.schedule(null, 0L));
+    }
+}
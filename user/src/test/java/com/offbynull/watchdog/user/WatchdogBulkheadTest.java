@@ -0,0 +1,141 @@
+package com.offbynull.watchdog.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogBulkheadTest {
+
+    private VirtualWatchdogClock clock;
+    private CountDownLatch holdRelease;
+    private List<Thread> holders;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+        holdRelease = new CountDownLatch(1);
+        holders = new ArrayList<>();
+        runs = new AtomicInteger();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        holdRelease.countDown();
+        for (Thread holder : holders) {
+            holder.join();
+        }
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustRejectRightAwayOnceSlotsAreTaken() throws Exception {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(2, 0L);
+        hold(bulkhead, "key");
+        hold(bulkhead, "key");
+
+        assertThrows(WatchdogRejectedException.class, () -> run(bulkhead, "key"));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void mustLimitEachKeySeparately() throws Exception {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(1, 0L);
+        hold(bulkhead, "key1");
+
+        assertThrows(WatchdogRejectedException.class, () -> run(bulkhead, "key1"));
+        run(bulkhead, "key2");
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustReleaseSlotWhenLaunchTimesOut() {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(1, 0L);
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            bulkhead.watch("key", 100L, wd -> {
+                clock.advance(100L);
+                wd.onBranch(); // aborts
+            });
+        });
+
+        run(bulkhead, "key");
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustReleaseSlotWhenLaunchThrows() {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(1, 0L);
+        WatchdogRunnable runnable = wd -> {
+            throw new IllegalArgumentException();
+        };
+        assertThrows(IllegalArgumentException.class, () -> bulkhead.watch("key", 100L, runnable));
+
+        run(bulkhead, "key");
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustWaitInQueueForSlotToFreeUp() throws Exception {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(1, 60000L);
+        hold(bulkhead, "key");
+
+        Thread mainThread = Thread.currentThread();
+        Thread releaser = new Thread(() -> {
+            while (mainThread.getState() != Thread.State.TIMED_WAITING) { // wait for main thread to start waiting in queue
+                Thread.yield();
+            }
+            holdRelease.countDown();
+        });
+        releaser.start();
+
+        run(bulkhead, "key");
+        releaser.join();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustRejectOnceQueueWaitRunsOut() throws Exception {
+        WatchdogBulkhead bulkhead = new WatchdogBulkhead(1, 50L);
+        hold(bulkhead, "key");
+
+        long start = System.nanoTime();
+        assertThrows(WatchdogRejectedException.class, () -> run(bulkhead, "key"));
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= MILLISECONDS.toNanos(50L));
+        assertEquals(0, runs.get());
+    }
+
+    private void run(WatchdogBulkhead bulkhead, String key) {
+        bulkhead.watch(key, 60000L, wd -> {
+            runs.incrementAndGet();
+        });
+    }
+
+    // Takes up a slot until the test ends (or holdRelease is counted down)
+    private void hold(WatchdogBulkhead bulkhead, String key) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            bulkhead.watch(key, 60000L, wd -> {
+                held.countDown();
+                try {
+                    holdRelease.await();
+                } catch (InterruptedException ie) {
+                    throw new IllegalStateException(ie);
+                }
+            });
+        });
+        holders.add(holder);
+        holder.start();
+        held.await();
+    }
+}
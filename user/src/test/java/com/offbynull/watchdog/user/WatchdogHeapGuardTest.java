@@ -0,0 +1,272 @@
+package com.offbynull.watchdog.user;
+
+import com.offbynull.watchdog.user.WatchdogHeapGuard.Policy;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogHeapGuardTest {
+
+    private VirtualWatchdogClock clock;
+    private FakeMemoryPool pool;
+    private NotificationBroadcasterSupport emitter;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+        pool = new FakeMemoryPool("pool", 1000L, 42L);
+        emitter = new NotificationBroadcasterSupport();
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustTriggerWatchdogOnThresholdNotification() throws Exception {
+        try (WatchdogHeapGuard guard = new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Arrays.asList(pool), emitter)) {
+            assertEquals(900L, pool.getCollectionUsageThreshold());
+
+            assertThrows(WatchdogTimeoutException.class, () -> {
+                WatchdogLauncher.watch(60000L, wd -> {
+                    emitter.sendNotification(createThresholdNotification("pool"));
+                    wd.onBranch(); // aborts
+                });
+            });
+        }
+    }
+
+    @Test
+    public void mustNeverPickShadowWatchdog() throws Exception {
+        CountDownLatch shadowStarted = new CountDownLatch(1);
+        CountDownLatch shadowRelease = new CountDownLatch(1);
+        Thread shadowThread = new Thread(() -> {
+            try {
+                WatchdogLauncher.watchShadow("key", 60000L, wd -> {
+                    shadowStarted.countDown();
+                    shadowRelease.await();
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try (WatchdogHeapGuard guard = new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Arrays.asList(pool), emitter)) {
+            shadowThread.start();
+            shadowStarted.await();
+
+            // Shadow launch is the longest running, but it never aborts -- the normal launch must get picked instead, every time
+            for (int i = 0; i < 2; i++) {
+                assertThrows(WatchdogTimeoutException.class, () -> {
+                    WatchdogLauncher.watch(60000L, wd -> {
+                        emitter.sendNotification(createThresholdNotification("pool"));
+                        wd.onBranch(); // aborts
+                    });
+                });
+            }
+        } finally {
+            shadowRelease.countDown();
+            shadowThread.join();
+            WatchdogShadowRecorder.reset();
+        }
+    }
+
+    @Test
+    public void mustIgnoreThresholdNotificationForUnguardedPool() throws Exception {
+        try (WatchdogHeapGuard guard = new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Arrays.asList(pool), emitter)) {
+            WatchdogLauncher.watch(60000L, wd -> {
+                emitter.sendNotification(createThresholdNotification("other pool"));
+                wd.onBranch();
+            });
+        }
+    }
+
+    @Test
+    public void mustRestoreOriginalThresholdsAndStopListeningOnClose() throws Exception {
+        WatchdogHeapGuard guard = new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Arrays.asList(pool), emitter);
+        assertEquals(900L, pool.getCollectionUsageThreshold());
+        guard.close();
+        assertEquals(42L, pool.getCollectionUsageThreshold());
+
+        WatchdogLauncher.watch(60000L, wd -> {
+            emitter.sendNotification(createThresholdNotification("pool"));
+            wd.onBranch();
+        });
+    }
+
+    @Test
+    public void mustFailIfNoPoolSupportsThresholds() {
+        pool = new FakeMemoryPool("pool", -1L, 42L); // max undefined
+        assertThrows(IllegalStateException.class, () -> {
+            new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Collections.singletonList(pool), emitter);
+        });
+        assertEquals(42L, pool.getCollectionUsageThreshold());
+    }
+
+    @Test
+    public void mustRestoreOriginalThresholdsIfListenerCantBeAdded() {
+        emitter = new NotificationBroadcasterSupport() {
+            @Override
+            public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+                throw new IllegalArgumentException();
+            }
+        };
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WatchdogHeapGuard(0.9, Policy.LONGEST_RUNNING, 1, Arrays.asList(pool), emitter);
+        });
+        assertEquals(42L, pool.getCollectionUsageThreshold());
+    }
+
+    private static Notification createThresholdNotification(String poolName) {
+        CompositeData info;
+        try {
+            String[] usageNames = { "init", "used", "committed", "max" };
+            CompositeType usageType = new CompositeType(MemoryUsage.class.getName(), "usage", usageNames, usageNames,
+                    new OpenType<?>[] { SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+            CompositeData usage = new CompositeDataSupport(usageType, usageNames, new Object[] { 0L, 950L, 1000L, 1000L });
+
+            String[] infoNames = { "poolName", "usage", "count" };
+            CompositeType infoType = new CompositeType(MemoryNotificationInfo.class.getName(), "info", infoNames, infoNames,
+                    new OpenType<?>[] { SimpleType.STRING, usageType, SimpleType.LONG });
+            info = new CompositeDataSupport(infoType, infoNames, new Object[] { poolName, usage, 1L });
+        } catch (OpenDataException ode) {
+            throw new IllegalStateException(ode); // should never happen
+        }
+
+        Notification notification = new Notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED, "test", 0L);
+        notification.setUserData(info);
+        return notification;
+    }
+
+
+
+    private static final class FakeMemoryPool implements MemoryPoolMXBean {
+        private final String name;
+        private final long max;
+        private long collectionUsageThreshold;
+
+        FakeMemoryPool(String name, long max, long collectionUsageThreshold) {
+            this.name = name;
+            this.max = max;
+            this.collectionUsageThreshold = collectionUsageThreshold;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public MemoryType getType() {
+            return MemoryType.HEAP;
+        }
+
+        @Override
+        public MemoryUsage getUsage() {
+            return new MemoryUsage(-1L, 0L, 0L, max);
+        }
+
+        @Override
+        public boolean isCollectionUsageThresholdSupported() {
+            return true;
+        }
+
+        @Override
+        public long getCollectionUsageThreshold() {
+            return collectionUsageThreshold;
+        }
+
+        @Override
+        public void setCollectionUsageThreshold(long threshold) {
+            collectionUsageThreshold = threshold;
+        }
+
+        @Override
+        public MemoryUsage getPeakUsage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void resetPeakUsage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public String[] getMemoryManagerNames() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getUsageThreshold() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setUsageThreshold(long threshold) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isUsageThresholdExceeded() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getUsageThresholdCount() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isUsageThresholdSupported() {
+            return false;
+        }
+
+        @Override
+        public boolean isCollectionUsageThresholdExceeded() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getCollectionUsageThresholdCount() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MemoryUsage getCollectionUsage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectName getObjectName() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
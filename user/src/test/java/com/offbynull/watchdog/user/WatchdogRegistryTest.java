@@ -0,0 +1,172 @@
+package com.offbynull.watchdog.user;
+
+import com.offbynull.watchdog.user.WatchdogRegistry.WatchdogInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogRegistryTest {
+
+    private VirtualWatchdogClock clock;
+    private CountDownLatch holdRelease;
+    private List<Thread> holders;
+    private Map<String, Boolean> timedOut;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+        holdRelease = new CountDownLatch(1);
+        holders = new ArrayList<>();
+        timedOut = new ConcurrentHashMap<>();
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        releaseHolders();
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustListActiveLaunchesFromOldestToNewest() throws Exception {
+        hold("a");
+        clock.advance(10L);
+        hold("b");
+        clock.advance(10L);
+        hold("c");
+
+        List<WatchdogInfo> infos = WatchdogRegistry.snapshot();
+        assertEquals(3, WatchdogRegistry.size());
+        assertEquals(Arrays.asList("a", "b", "c"), infos.stream().map(WatchdogInfo::getKey).collect(toList()));
+        assertEquals(Arrays.asList(20L, 10L, 0L), infos.stream().map(WatchdogInfo::getElapsedTime).collect(toList()));
+        assertEquals(Arrays.asList(59980L, 59990L, 60000L), infos.stream().map(WatchdogInfo::getRemainingTime).collect(toList()));
+        assertEquals(Arrays.asList("b"), keys(WatchdogRegistry.snapshot(x -> "b".equals(x.getKey()))));
+    }
+
+    @Test
+    public void mustRemoveLaunchOnceFinished() throws Exception {
+        WatchdogLauncher.watch("a", 60000L, wd -> {
+            assertEquals(Arrays.asList("a"), keys(WatchdogRegistry.snapshot()));
+        });
+        assertEquals(0, WatchdogRegistry.size());
+
+        WatchdogRunnable runnable = wd -> {
+            throw new IllegalArgumentException();
+        };
+        assertThrows(IllegalArgumentException.class, () -> WatchdogLauncher.watch("a", 60000L, runnable));
+        assertEquals(0, WatchdogRegistry.size());
+
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch("a", 100L, wd -> {
+                clock.advance(100L);
+                wd.onBranch();
+            });
+        });
+        assertEquals(0, WatchdogRegistry.size());
+    }
+
+    @Test
+    public void mustKeepDetachedLaunchUntilClosed() {
+        Watchdog watchdog = WatchdogLauncher.open(60000L);
+        assertEquals(1, WatchdogRegistry.size());
+        assertTrue(WatchdogRegistry.isActive(watchdog));
+
+        WatchdogLauncher.close(watchdog);
+        assertEquals(0, WatchdogRegistry.size());
+        assertFalse(WatchdogRegistry.isActive(watchdog));
+    }
+
+    @Test
+    public void mustTriggerMatchingLaunches() throws Exception {
+        hold("a");
+        hold("b");
+        hold("c");
+
+        assertEquals(2, WatchdogRegistry.trigger(x -> !"b".equals(x.getKey())));
+        assertEquals(Arrays.asList(true, false, true), triggered(WatchdogRegistry.snapshot()));
+        assertEquals(0, WatchdogRegistry.trigger(x -> !"b".equals(x.getKey()))); // already triggered -- not counted again
+
+        releaseHolders();
+        assertEquals(Boolean.TRUE, timedOut.get("a"));
+        assertEquals(Boolean.FALSE, timedOut.get("b"));
+        assertEquals(Boolean.TRUE, timedOut.get("c"));
+    }
+
+    @Test
+    public void mustTriggerOldestMatchingLaunchesUpToMax() throws Exception {
+        hold("a");
+        hold("b");
+        hold("c");
+
+        assertEquals(1, WatchdogRegistry.trigger(x -> true, 1));
+        assertEquals(Arrays.asList(true, false, false), triggered(WatchdogRegistry.snapshot()));
+        assertEquals(2, WatchdogRegistry.trigger(x -> true, 5)); // skips "a", which was already triggered
+        assertEquals(Arrays.asList(true, true, true), triggered(WatchdogRegistry.snapshot()));
+    }
+
+    @Test
+    public void mustTriggerLaunchesOlderThanAge() throws Exception {
+        hold("a");
+        clock.advance(10L);
+        hold("b");
+        clock.advance(10L);
+        hold("a");
+
+        assertEquals(1, WatchdogRegistry.triggerOlderThan("a", 5L));
+        assertEquals(Arrays.asList(true, false, false), triggered(WatchdogRegistry.snapshot()));
+        assertEquals(1, WatchdogRegistry.triggerOlderThan(5L));
+        assertEquals(Arrays.asList(true, true, false), triggered(WatchdogRegistry.snapshot()));
+    }
+
+    private static List<String> keys(List<WatchdogInfo> infos) {
+        return infos.stream().map(WatchdogInfo::getKey).collect(toList());
+    }
+
+    private static List<Boolean> triggered(List<WatchdogInfo> infos) {
+        return infos.stream().map(WatchdogInfo::isTriggered).collect(toList());
+    }
+
+    // Keeps a launch running until the test ends (or releaseHolders() is called)
+    private void hold(String key) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                WatchdogLauncher.watch(key, 60000L, wd -> {
+                    held.countDown();
+                    try {
+                        holdRelease.await();
+                    } catch (InterruptedException ie) {
+                        throw new IllegalStateException(ie);
+                    }
+                    wd.onBranch();
+                });
+                timedOut.putIfAbsent(key, false);
+            } catch (WatchdogTimeoutException wte) {
+                timedOut.put(key, true);
+            }
+        });
+        holders.add(holder);
+        holder.start();
+        held.await();
+    }
+
+    private void releaseHolders() throws InterruptedException {
+        holdRelease.countDown();
+        for (Thread holder : holders) {
+            holder.join();
+        }
+        holders = Collections.emptyList();
+    }
+}
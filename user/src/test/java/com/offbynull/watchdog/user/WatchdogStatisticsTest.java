@@ -0,0 +1,111 @@
+package com.offbynull.watchdog.user;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogStatisticsTest {
+
+    private VirtualWatchdogClock clock;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustReportChecksAndElapsedTimeForExecutionThatFinishes() throws Exception {
+        WatchdogResult<String> result = WatchdogLauncher.watchWithStatistics(1000L, wd -> {
+            wd.onMethodEntry();
+            for (int i = 0; i < 5; i++) {
+                wd.onBranch();
+                clock.advance(50L);
+            }
+            wd.onMethodEntry();
+            return "done";
+        });
+
+        WatchdogStatistics statistics = result.getStatistics();
+        assertEquals("done", result.getValue());
+        assertEquals(5L, statistics.getBranchChecks());
+        assertEquals(2L, statistics.getMethodEntryChecks());
+        assertEquals(MILLISECONDS.toNanos(250L), statistics.getWallTime());
+        assertEquals(0, statistics.getPeakUninterruptibleDepth());
+        assertFalse(statistics.isDeadlineClose());
+        assertFalse(statistics.isTimedOut());
+    }
+
+    @Test
+    public void mustReportDeadlineCloseOnceMostOfDelayUsed() throws Exception {
+        WatchdogResult<Object> result = WatchdogLauncher.watchWithStatistics(1000L, wd -> {
+            clock.advance(899L);
+            return null;
+        });
+        assertFalse(result.getStatistics().isDeadlineClose());
+
+        result = WatchdogLauncher.watchWithStatistics(1000L, wd -> {
+            clock.advance(900L);
+            return null;
+        });
+        assertTrue(result.getStatistics().isDeadlineClose());
+        assertFalse(result.getStatistics().isTimedOut());
+    }
+
+    @Test
+    public void mustReportStatisticsOnTimeout() {
+        WatchdogTimeoutException wte = assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watchWithStatistics(1000L, wd -> {
+                wd.onBranch();
+                wd.onMethodEntry();
+                clock.advance(1000L);
+                wd.onBranch(); // throws
+                wd.onBranch();
+                return null;
+            });
+        });
+
+        WatchdogStatistics statistics = wte.getStatistics();
+        assertEquals(2L, statistics.getBranchChecks());
+        assertEquals(1L, statistics.getMethodEntryChecks());
+        assertEquals(MILLISECONDS.toNanos(1000L), statistics.getWallTime());
+        assertTrue(statistics.isDeadlineClose());
+        assertTrue(statistics.isTimedOut());
+    }
+
+    @Test
+    public void mustReportPeakUninterruptibleDepth() throws Exception {
+        WatchdogResult<Object> result = WatchdogLauncher.watchWithStatistics(1000L, wd -> {
+            wd.enterUninterruptibleSection();
+            wd.enterUninterruptibleSection();
+            wd.exitUninterruptibleSection();
+            wd.enterUninterruptibleSection();
+            wd.exitUninterruptibleSection();
+            wd.exitUninterruptibleSection();
+            return null;
+        });
+        assertEquals(2, result.getStatistics().getPeakUninterruptibleDepth());
+    }
+
+    @Test
+    public void mustNotReportStatisticsOnTimeoutOfRegularLaunch() {
+        WatchdogTimeoutException wte = assertThrows(WatchdogTimeoutException.class, () -> {
+            WatchdogLauncher.watch(1000L, wd -> {
+                clock.advance(1000L);
+                wd.onBranch();
+            });
+        });
+        assertNull(wte.getStatistics());
+    }
+}
@@ -0,0 +1,246 @@
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogSupervisorTest {
+
+    private VirtualWatchdogClock clock;
+    private WatchdogSupervisor supervisor;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+        supervisor = new WatchdogSupervisor(1, 0L, 0L, 4, 0.5, 1000L, clock);
+        runs = new AtomicInteger();
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustRetryTimeoutsUpToMaxAttempts() {
+        supervisor = new WatchdogSupervisor(3, 0L, 0L, 100, 1.0, 1000L, clock);
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    public void mustNotRetryOtherExceptions() {
+        supervisor = new WatchdogSupervisor(3, 0L, 0L, 100, 1.0, 1000L, clock);
+        WatchdogRunnable runnable = wd -> {
+            runs.incrementAndGet();
+            throw new IllegalArgumentException();
+        };
+        assertThrows(IllegalArgumentException.class, () -> supervisor.watch("key", 100L, runnable));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustNotOpenCircuitUntilWindowFills() {
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        succeed();
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    public void mustOpenCircuitOnceFailureRateReached() {
+        succeed();
+        succeed();
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut()); // window full, 2 of 4 failed -- opens
+
+        assertThrows(WatchdogRejectedException.class, () -> succeed());
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    public void mustSlideWindowOverOldestResults() {
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        succeed();
+        succeed();
+        succeed(); // window full, 1 of 4 failed
+        succeed(); // window slides past failure, 0 of 4 failed
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut()); // 1 of 4 failed
+        succeed(); // 1 of 4 failed
+
+        succeed();
+        assertEquals(8, runs.get());
+    }
+
+    @Test
+    public void mustCloseCircuitIfTrialSucceeds() {
+        openCircuit();
+
+        clock.advance(999L);
+        assertThrows(WatchdogRejectedException.class, () -> succeed());
+        clock.advance(1L);
+        succeed(); // trial
+
+        succeed();
+        succeed();
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    public void mustReopenCircuitIfTrialTimesOut() {
+        openCircuit();
+
+        clock.advance(1000L);
+        assertThrows(WatchdogTimeoutException.class, () -> timeOut()); // trial -- time out re-opens
+
+        clock.advance(999L); // open duration counts from when the trial timed out
+        assertThrows(WatchdogRejectedException.class, () -> succeed());
+        clock.advance(1L);
+        succeed(); // trial
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void mustRejectEverythingWhileTrialInFlight() throws Exception {
+        openCircuit();
+
+        clock.advance(1000L);
+        AtomicReference<Exception> otherResult = new AtomicReference<>();
+        supervisor.watch("key", 100L, wd -> {
+            runs.incrementAndGet();
+            otherResult.set(runOnOtherThread(() -> succeed()));
+        });
+
+        assertTrue(otherResult.get() instanceof WatchdogRejectedException);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustIgnoreLaunchLetThroughBeforeCircuitOpenedWhenDecidingTrial() throws Exception {
+        // Launch let through while closed, held until the circuit has gone half-open
+        CountDownLatch staleStarted = new CountDownLatch(1);
+        CountDownLatch staleRelease = new CountDownLatch(1);
+        Thread staleThread = new Thread(() -> {
+            supervisor.watch("key", 60000L, wd -> {
+                staleStarted.countDown();
+                try {
+                    staleRelease.await();
+                } catch (InterruptedException ie) {
+                    throw new IllegalStateException(ie);
+                }
+            });
+        });
+        staleThread.start();
+        staleStarted.await();
+
+        openCircuit();
+        clock.advance(1000L);
+
+        AtomicReference<Exception> otherResult = new AtomicReference<>();
+        assertThrows(WatchdogTimeoutException.class, () -> {
+            supervisor.watch("key", 100L, wd -> { // trial
+                staleRelease.countDown();
+                try {
+                    staleThread.join(); // stale launch finishes successfully -- must not close the circuit
+                } catch (InterruptedException ie) {
+                    throw new IllegalStateException(ie);
+                }
+                otherResult.set(runOnOtherThread(() -> succeed())); // trial still in flight -- must be rejected
+
+                clock.advance(100L);
+                wd.onBranch(); // trial times out
+            });
+        });
+
+        assertTrue(otherResult.get() instanceof WatchdogRejectedException);
+        assertThrows(WatchdogRejectedException.class, () -> succeed()); // trial timed out -- re-opened
+    }
+
+    @Test
+    public void mustFreeUpTrialIfTrialThrowsError() {
+        openCircuit();
+
+        clock.advance(1000L);
+        WatchdogRunnable runnable = wd -> {
+            throw new AssertionError();
+        };
+        assertThrows(AssertionError.class, () -> supervisor.watch("key", 100L, runnable));
+
+        succeed(); // trial closed the circuit
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void mustKeepBackoffWithinBounds() {
+        for (int attempt = 1; attempt <= 100; attempt++) {
+            long cap = Math.min(1000L, 10L << Math.min(attempt - 1, 62));
+            if (attempt > 57) {
+                cap = 1000L; // 10 << 57+ overflows
+            }
+            assertEquals(cap / 2L, WatchdogSupervisor.backoffTime(10L, 1000L, attempt, bound -> 0L));
+            assertEquals(cap, WatchdogSupervisor.backoffTime(10L, 1000L, attempt, bound -> bound - 1L));
+            for (int i = 0; i < 100; i++) {
+                long time = WatchdogSupervisor.backoffTime(10L, 1000L, attempt, ThreadLocalRandom.current()::nextLong);
+                assertTrue(time >= cap / 2L && time <= cap);
+            }
+        }
+    }
+
+    @Test
+    public void mustCapBackoffOnOverflow() {
+        assertEquals(Long.MAX_VALUE, WatchdogSupervisor.backoffTime(3L, Long.MAX_VALUE, 63, bound -> bound - 1L)); // 3 << 62 overflows
+        assertEquals(Long.MAX_VALUE / 2L, WatchdogSupervisor.backoffTime(3L, Long.MAX_VALUE, 63, bound -> 0L));
+        assertEquals(1L << 62, WatchdogSupervisor.backoffTime(1L, Long.MAX_VALUE, 1000, bound -> bound - 1L)); // shift capped at 62
+    }
+
+    private void succeed() {
+        supervisor.watch("key", 100L, wd -> {
+            runs.incrementAndGet();
+        });
+    }
+
+    private void timeOut() {
+        supervisor.watch("key", 100L, wd -> {
+            runs.incrementAndGet();
+            clock.advance(100L);
+            wd.onBranch(); // aborts
+        });
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WatchdogTimeoutException.class, () -> timeOut());
+        }
+        assertThrows(WatchdogRejectedException.class, () -> succeed());
+        runs.set(0);
+    }
+
+    private static Exception runOnOtherThread(Runnable runnable) {
+        AtomicReference<Exception> ret = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                ret.set(e);
+            }
+        });
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException ie) {
+            throw new IllegalStateException(ie);
+        }
+        return ret.get();
+    }
+}
@@ -0,0 +1,150 @@
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogTenantBudgetTest {
+
+    private VirtualWatchdogClock clock;
+    private AtomicLong cpuTime;
+    private WatchdogTenantBudget fixture;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        WatchdogLauncher.setClock(clock);
+        cpuTime = new AtomicLong();
+        fixture = new WatchdogTenantBudget(100L, 1000L, clock, cpuTime::get);
+    }
+
+    @AfterEach
+    public void after() {
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustDepleteBudgetAcrossLaunches() throws Exception {
+        run("a", 1000L, 40L);
+        assertEquals(40L, fixture.getUsage("a"));
+        run("a", 1000L, 60L);
+        assertEquals(100L, fixture.getUsage("a"));
+    }
+
+    @Test
+    public void mustRejectLaunchOnceBudgetExhausted() throws Exception {
+        run("a", 1000L, 100L);
+
+        AtomicBoolean invoked = new AtomicBoolean();
+        WatchdogRunnable runnable = wd -> invoked.set(true);
+        assertThrows(WatchdogRejectedException.class, () -> fixture.watch("a", 1000L, runnable));
+        assertFalse(invoked.get());
+        assertEquals(100L, fixture.getUsage("a"));
+    }
+
+    @Test
+    public void mustChargeLaunchThatThrows() {
+        WatchdogRunnable runnable = wd -> {
+            cpuTime.addAndGet(MILLISECONDS.toNanos(30L));
+            throw new IllegalArgumentException();
+        };
+        assertThrows(IllegalArgumentException.class, () -> fixture.watch("a", 1000L, runnable));
+        assertEquals(30L, fixture.getUsage("a"));
+    }
+
+    @Test
+    public void mustShortenDelayToBudgetLeft() throws Exception {
+        run("a", 1000L, 70L);
+
+        WatchdogCallable<Long> callable = wd -> WatchdogRegistry.snapshot().get(0).getRemainingTime();
+        assertEquals(30L, (long) fixture.watch("a", 1000L, callable));
+    }
+
+    @Test
+    public void mustRejectLaunchWhileRunningLaunchesHoldBudget() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Throwable> holderFailure = new AtomicReference<>();
+        Thread holder = new Thread(() -> {
+            try {
+                fixture.watch("a", 60L, wd -> {
+                    held.countDown();
+                    release.await();
+                    return null;
+                });
+            } catch (Throwable t) {
+                holderFailure.set(t);
+            }
+        });
+        holder.start();
+        held.await();
+
+        try {
+            long remaining = fixture.watch("a", 1000L, wd -> {
+                long ret = WatchdogRegistry.snapshot(x -> x.getRemainingTime() != 60L).get(0).getRemainingTime();
+                AtomicBoolean invoked = new AtomicBoolean();
+                AtomicReference<Throwable> otherFailure = new AtomicReference<>();
+                Thread other = new Thread(() -> {
+                    try {
+                        fixture.watch("a", 1000L, otherWd -> {
+                            invoked.set(true);
+                            return null;
+                        });
+                    } catch (Throwable t) {
+                        otherFailure.set(t);
+                    }
+                });
+                other.start();
+                other.join();
+                assertFalse(invoked.get());
+                assertTrue(otherFailure.get() instanceof WatchdogRejectedException);
+                return ret;
+            });
+            assertEquals(40L, remaining); // 60ms still reserved by holder
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        assertEquals(null, holderFailure.get());
+        assertEquals(0L, fixture.getUsage("a")); // reservations released, neither launch used any CPU time
+    }
+
+    @Test
+    public void mustKeepTenantsSeparate() throws Exception {
+        run("a", 1000L, 100L);
+
+        run("b", 1000L, 10L);
+        assertEquals(100L, fixture.getUsage("a"));
+        assertEquals(10L, fixture.getUsage("b"));
+    }
+
+    @Test
+    public void mustRestoreBudgetOnceUsageLeavesWindow() throws Exception {
+        run("a", 1000L, 100L);
+        WatchdogRunnable runnable = wd -> { };
+        assertThrows(WatchdogRejectedException.class, () -> fixture.watch("a", 1000L, runnable));
+
+        clock.advance(900L);
+        assertThrows(WatchdogRejectedException.class, () -> fixture.watch("a", 1000L, runnable));
+
+        clock.advance(100L);
+        assertEquals(0L, fixture.getUsage("a"));
+        run("a", 1000L, 10L);
+        assertEquals(10L, fixture.getUsage("a"));
+    }
+
+    private void run(String tenant, long delay, long cpuUsed) throws Exception {
+        WatchdogRunnable runnable = wd -> cpuTime.addAndGet(MILLISECONDS.toNanos(cpuUsed));
+        fixture.watch(tenant, delay, runnable);
+    }
+}
@@ -0,0 +1,158 @@
+package com.offbynull.watchdog.user;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public final class WatchdogTest {
+
+    private VirtualWatchdogClock clock;
+    private AtomicLong gcPauseTime;
+    private AtomicBoolean lastCheckReached;
+
+    @BeforeEach
+    public void before() {
+        clock = new VirtualWatchdogClock();
+        gcPauseTime = new AtomicLong(MILLISECONDS.toNanos(1000L)); // JVM already spent time in GC pauses before launch
+        lastCheckReached = new AtomicBoolean();
+        WatchdogLauncher.setClock(clock);
+        WatchdogLauncher.setGcPauseCompensation(true);
+        Watchdog.setDefaultGcPauseSource(gcPauseTime::get);
+    }
+
+    @AfterEach
+    public void after() {
+        Watchdog.setDefaultGcPauseSource(GcPauseTracker::totalPauseTime);
+        WatchdogLauncher.setGcPauseCompensation(false);
+        WatchdogLauncher.setClock(WatchdogClock.system());
+    }
+
+    @Test
+    public void mustPushBackDeadlineByGcPauseTime() {
+        WatchdogRunnable runnable = wd -> {
+            pause(50L);
+            clock.advance(100L);
+            wd.onBranch();
+            clock.advance(49L);
+            wd.onBranch();
+            clock.advance(1L);
+            lastCheckReached.set(true);
+            wd.onBranch(); // throws
+        };
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watch(100L, runnable));
+        assertTrue(lastCheckReached.get());
+    }
+
+    @Test
+    public void mustNotPushBackDeadlineIfCompensationDisabled() {
+        WatchdogLauncher.setGcPauseCompensation(false);
+
+        WatchdogRunnable runnable = wd -> {
+            pause(50L);
+            clock.advance(100L);
+            wd.onBranch(); // throws
+            lastCheckReached.set(true);
+        };
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watch(100L, runnable));
+        assertFalse(lastCheckReached.get());
+    }
+
+    @Test
+    public void mustPushBackHeartbeatIntervalByGcPauseTime() {
+        WatchdogRunnable runnable = wd -> {
+            pause(50L);
+            clock.advance(100L);
+            wd.onBranch();
+            clock.advance(49L);
+            wd.onBranch();
+            clock.advance(1L);
+            lastCheckReached.set(true);
+            wd.onBranch(); // throws
+        };
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watchHeartbeat(100L, runnable));
+        assertTrue(lastCheckReached.get());
+    }
+
+    @Test
+    public void mustNotCarryHeartbeatPushBackOverToNextInterval() {
+        WatchdogRunnable runnable = wd -> {
+            pause(50L);
+            clock.advance(100L);
+            wd.renew(); // new interval runs out at 200ms -- pause was already compensated for in the last interval
+            clock.advance(99L);
+            wd.onBranch();
+            clock.advance(1L);
+            lastCheckReached.set(true);
+            wd.onBranch(); // throws
+        };
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watchHeartbeat(100L, runnable));
+        assertTrue(lastCheckReached.get());
+    }
+
+    @Test
+    public void mustPushBackHeartbeatIntervalAndDeadlineSeparately() {
+        WatchdogRunnable runnable = wd -> {
+            pause(50L);
+            clock.advance(100L); // both heartbeat and deadline see the same pause
+            wd.onBranch();
+            clock.advance(49L);
+            wd.onBranch();
+            clock.advance(1L);
+            lastCheckReached.set(true);
+            wd.onBranch(); // throws
+        };
+        assertThrows(WatchdogTimeoutException.class, () -> WatchdogLauncher.watchHeartbeat(100L, 100L, runnable));
+        assertTrue(lastCheckReached.get());
+    }
+
+    @Test
+    public void mustPushBackItemBudgetByGcPauseTime() {
+        WatchdogRunnable runnable = wd -> {
+            wd.beginItem(100L);
+            pause(50L);
+            clock.advance(100L);
+            wd.onBranch();
+            clock.advance(49L);
+            wd.onBranch();
+            clock.advance(1L);
+            assertThrows(CodeInterruptedException.class, () -> wd.onBranch());
+            wd.endItem();
+
+            wd.beginItem(100L); // next item starts fresh -- pause was already compensated for in the last item
+            clock.advance(100L);
+            assertThrows(CodeInterruptedException.class, () -> wd.onBranch());
+            wd.endItem();
+        };
+        WatchdogLauncher.watch(10000L, runnable);
+    }
+
+    @Test
+    public void mustOnlyCountChecksWhenCollectingStatistics() throws Exception {
+        WatchdogRunnable runnable = wd -> {
+            wd.onBranch();
+            wd.onMethodEntry();
+            assertEquals(0L, wd.branchCheckCount());
+            assertEquals(0L, wd.methodEntryCheckCount());
+        };
+        WatchdogLauncher.watch(100L, runnable);
+
+        WatchdogLauncher.watchWithStatistics(100L, wd -> {
+            wd.onBranch();
+            wd.onMethodEntry();
+            assertEquals(1L, wd.branchCheckCount());
+            assertEquals(1L, wd.methodEntryCheckCount());
+            return null;
+        });
+    }
+
+    private void pause(long time) {
+        gcPauseTime.addAndGet(MILLISECONDS.toNanos(time));
+    }
+}